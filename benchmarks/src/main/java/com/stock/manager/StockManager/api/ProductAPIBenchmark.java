@@ -0,0 +1,190 @@
+package com.stock.manager.StockManager.api;
+
+import com.stock.manager.StockManager.models.Product;
+import com.stock.manager.StockManager.repository.StockUpsert;
+import com.stock.manager.StockManager.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.sql.Timestamp;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The stock update and the statistics end-points of the {@link ProductAPI}, called directly
+ * without the HTTP layer. The storage is replaced by an in-memory {@link ProductService}, so
+ * the benchmarks measure the locking, the sales ledger, the availability index and the
+ * rendering of the statistics only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductAPIBenchmark {
+
+
+    @Param({"1000", "10000"})
+    int products;
+
+    ProductAPI api;
+
+    String[] productIds;
+
+    /**
+     * the ETag of today's statistics, sent back by the clients which already have them
+     */
+    String etag;
+
+
+    /**
+     * the products keyed by the lower case product ID, the same decision as the conditional
+     * upsert of the storage
+     */
+    static class InMemoryProductService extends ProductService {
+
+        private final ConcurrentHashMap<String, Product> store = new ConcurrentHashMap<>();
+
+        @Override
+        public Optional<Product> findById(String id) {
+            return Optional.ofNullable(store.get(id.toLowerCase(Locale.ROOT)));
+        }
+
+        @Override
+        public StockUpsert saveIfNewer(Product product) {
+
+            StockUpsert[] upsert = new StockUpsert[1];
+
+            store.compute(product.getProductId().toLowerCase(Locale.ROOT), (key, stored) -> {
+
+                if (stored == null) {
+                    upsert[0] = StockUpsert.inserted();
+                    return product;
+                }
+
+                if (stored.getTimestamp().after(product.getTimestamp())) {
+                    upsert[0] = StockUpsert.outdated(stored.getQuantity());
+                    return stored;
+                }
+
+                upsert[0] = StockUpsert.updated(stored.getQuantity());
+                return product;
+            });
+
+            return upsert[0];
+        }
+    }
+
+
+    /**
+     * the position of every thread in the products and the quantity of its next update
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+        int quantity = 1000;
+
+        int next(int bound) {
+
+            int position = next;
+            next = position + 1 == bound ? 0 : position + 1;
+
+            return position;
+        }
+    }
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        api = new ProductAPI();
+        api.setService(new InMemoryProductService());
+
+        productIds = new String[products];
+
+        long now = System.currentTimeMillis();
+
+        /*
+         * every product is stored and sold twice, so the statistics have sales to rank
+         * */
+        for (int i = 0; i < products; i++) {
+
+            productIds[i] = "Product ID" + i;
+
+            for (int update = 0; update < 3; update++) {
+                api.createProduct(product(productIds[i], now, 1000 - update * (1 + i % 50)));
+            }
+        }
+
+        ResponseEntity<Object> response = api.getStockStatistics("today", null, null, 3, null);
+        etag = response.getHeaders().getETag();
+    }
+
+
+    /**
+     * store a newer stock of a product, every other update sells a part of the stock
+     */
+    @Benchmark
+    public ResponseEntity<Product> createProduct(Cursor cursor) {
+
+        String productId = productIds[cursor.next(products)];
+
+        cursor.quantity = cursor.quantity == 1000 ? 990 : 1000;
+
+        return api.createProduct(product(productId, System.currentTimeMillis(), cursor.quantity));
+    }
+
+    /**
+     * today's statistics, rendered once and answered from the cache afterwards
+     */
+    @Benchmark
+    public ResponseEntity<Object> statisticsCached() {
+        return api.getStockStatistics("today", null, null, 3, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> statisticsNotModified() {
+        return api.getStockStatistics("today", null, null, 3, etag);
+    }
+
+    /**
+     * the statistics computed from the sales and the availability index on every call
+     */
+    @Benchmark
+    public ResponseEntity<Object> statisticsRecomputedToday() {
+
+        api.statistics.invalidate();
+        return api.getStockStatistics("today", null, null, 3, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> statisticsRecomputedLastMonth() {
+
+        api.statistics.invalidate();
+        return api.getStockStatistics("lastMonth", null, null, 3, null);
+    }
+
+
+    private static Product product(String productId, long millis, int quantity) {
+
+        Timestamp timestamp = new Timestamp(millis);
+        return new Product(productId, timestamp, "Stock ID", timestamp, quantity);
+    }
+}
@@ -0,0 +1,62 @@
+package com.stock.manager.StockManager.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * Runs the benchmarks once for every thread count with the GC profiler, which reports the
+ * allocation rate and the bytes allocated per operation. The results of every run are saved
+ * as JSON in the "results" directory, to compare them with the results of an earlier build,
+ * <p>
+ * $ java -jar target/benchmarks.jar [benchmark regex] [thread counts] [JMH options]
+ * <p>
+ * $ java -jar target/benchmarks.jar MemoryCache 1,4,8 -p size=100000
+ */
+public class BenchmarkRunner {
+
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+
+        String include = args.length > 0 ? args[0] : ".*";
+        String threads = args.length > 1 ? args[1] : "1";
+
+        /*
+         * the rest of the arguments are passed to JMH as they are, ie. the params or the
+         * shorter iterations of a quick run
+         * */
+        String[] jmhArgs = new String[Math.max(0, args.length - 2)];
+        System.arraycopy(args, Math.min(2, args.length), jmhArgs, 0, jmhArgs.length);
+
+        CommandLineOptions commandLine = new CommandLineOptions(jmhArgs);
+
+        File results = new File("results");
+        results.mkdirs();
+
+        String name = include.replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "");
+
+        for (String count : threads.split(",")) {
+
+            int threadCount = Integer.parseInt(count.trim());
+
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .include(include)
+                    .threads(threadCount)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(results, (name.isEmpty() ? "all" : name) + "-t" + threadCount + ".json").getPath());
+
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.stock.manager.StockManager.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The operations of the {@link MemoryCache} on a full cache of both eviction policies. The
+ * cache is shared by the benchmark threads, the thread count is set by the runner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemoryCacheBenchmark {
+
+
+    @Param({"1000", "100000"})
+    int size;
+
+    @Param({"LRU", "W_TINY_LFU"})
+    EvictionPolicy policy;
+
+    MemoryCache<Integer, String> cache;
+
+    /**
+     * the keys are boxed once, so the benchmarks don't measure the boxing. The first half is
+     * in the cache, the second half is not.
+     */
+    Integer[] keys;
+
+
+    /**
+     * the position of every thread in the keys
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+
+        int next(int bound) {
+
+            int position = next;
+            next = position + 1 == bound ? 0 : position + 1;
+
+            return position;
+        }
+    }
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        /*
+         * no scheduled cleanup, it's measured on its own
+         * */
+        cache = new MemoryCache<>(600, 0, size, policy);
+        keys = new Integer[2 * size];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+
+        for (int i = 0; i < size; i++) {
+            cache.put(keys[i], "value-" + i);
+        }
+    }
+
+
+    @Benchmark
+    public String get(Cursor cursor) {
+        return cache.get(keys[cursor.next(size)]);
+    }
+
+    @Benchmark
+    public String getMiss(Cursor cursor) {
+        return cache.get(keys[size + cursor.next(size)]);
+    }
+
+    /**
+     * override the value of a cached key
+     */
+    @Benchmark
+    public void put(Cursor cursor) {
+
+        Integer key = keys[cursor.next(size)];
+        cache.put(key, "value");
+    }
+
+    /**
+     * insert the keys which are not cached, every put evicts an item of the full cache
+     */
+    @Benchmark
+    public void putEvicting(Cursor cursor) {
+        cache.put(keys[cursor.next(keys.length)], "value");
+    }
+
+    @Benchmark
+    public void removeAndPut(Cursor cursor) {
+
+        Integer key = keys[cursor.next(size)];
+
+        cache.remove(key);
+        cache.put(key, "value");
+    }
+
+    /**
+     * a cleanup of the full cache with nothing to expire
+     */
+    @Benchmark
+    public void cleanup() {
+        cache.cleanup();
+    }
+
+    @Benchmark
+    public Map<Integer, String> convertToMap() {
+        return cache.convertToMap();
+    }
+}
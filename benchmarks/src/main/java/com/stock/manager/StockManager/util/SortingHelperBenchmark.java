@@ -0,0 +1,83 @@
+package com.stock.manager.StockManager.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The top selling products of a catalog, computed by the {@link SortingHelper} from the sales
+ * of the {@link SalesLedger} for both ranges of the statistics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortingHelperBenchmark {
+
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    @Param({"1000", "10000", "100000"})
+    int catalogSize;
+
+    @Param({"3", "10", "100"})
+    int n;
+
+    SalesLedger ledger;
+
+
+    /**
+     * every product sells on a few random days of today and the last month
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        ledger = new SalesLedger(catalogSize);
+        SplittableRandom random = new SplittableRandom(42);
+
+        long today = LocalDate.now(ZoneOffset.UTC).toEpochDay();
+
+        for (int i = 0; i < catalogSize; i++) {
+
+            String productId = "Product ID" + i;
+
+            for (int sale = 0; sale < 4; sale++) {
+
+                long day = today - random.nextInt(45);
+                long millis = day * MILLIS_PER_DAY + random.nextLong(MILLIS_PER_DAY);
+
+                ledger.record(productId, Math.min(millis, System.currentTimeMillis()), 1 + random.nextInt(500));
+            }
+        }
+    }
+
+
+    @Benchmark
+    public Map<String, Long> today() {
+        return SortingHelper.SortMapBasedOnValues(ledger, n, "today");
+    }
+
+    @Benchmark
+    public Map<String, Long> lastMonth() {
+        return SortingHelper.SortMapBasedOnValues(ledger, n, "lastMonth");
+    }
+}
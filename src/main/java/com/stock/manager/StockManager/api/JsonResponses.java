@@ -0,0 +1,175 @@
+package com.stock.manager.StockManager.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.stock.manager.StockManager.models.Product;
+import com.stock.manager.StockManager.util.IsoTimestamps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The JSON bodies of the read end-points, streamed by a Jackson generator straight into a
+ * pre-sized buffer. No tree of the response is built, and the timestamps are written as the
+ * ISO-8601 UTC millis by the {@link IsoTimestamps} without formatting them to strings first.
+ */
+final class JsonResponses {
+
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+
+    private JsonResponses() {
+    }
+
+
+    /**
+     * {"productId": .., "requestTimestamp": .., "stock": {"id": .., "timestamp": .., "quantity": ..}}
+     *
+     * @param product
+     * @param requestMillis
+     * @return the UTF-8 JSON bytes
+     */
+    static byte[] stock(Product product, long requestMillis) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(192);
+        char[] timestamp = new char[IsoTimestamps.LENGTH];
+
+        try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+
+            generator.writeStartObject();
+
+            generator.writeStringField("productId", product.getProductId());
+            writeTimestampField(generator, "requestTimestamp", requestMillis, timestamp);
+
+            generator.writeObjectFieldStart("stock");
+
+            if (product.getId() != null) {
+                generator.writeStringField("id", product.getId());
+            }
+
+            writeTimestampField(generator, "timestamp", product.getTimestamp().getTime(), timestamp);
+            generator.writeNumberField("quantity", product.getQuantity());
+
+            generator.writeEndObject();
+            generator.writeEndObject();
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+
+    /**
+     * the statistics keep the shape the end-point always had, the products are listed in
+     * an array nested in the array of the field, and the absent lists are written as ["[]"]
+     *
+     * @param requestMillis
+     * @param range            the range of the statistics, or empty if it's not supported
+     * @param topAvailable     the top available products, or null if there are none
+     * @param topSelling       the items sold keyed by the product ID, or null if there are none
+     * @return the UTF-8 JSON bytes
+     */
+    static byte[] statistics(long requestMillis, String range, List<Product> topAvailable, Map<String, Long> topSelling) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(768);
+        char[] timestamp = new char[IsoTimestamps.LENGTH];
+
+        try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+
+            generator.writeStartObject();
+
+            writeTimestampField(generator, "requestTimestamp", requestMillis, timestamp);
+            generator.writeStringField("range", range);
+
+            generator.writeArrayFieldStart("topAvailableProducts");
+
+            if (topAvailable == null) {
+                generator.writeString("[]");
+            } else {
+
+                generator.writeStartArray();
+
+                for (Product product : topAvailable) {
+
+                    generator.writeStartObject();
+
+                    if (product.getId() != null) {
+                        generator.writeStringField("id", product.getId());
+                    }
+
+                    writeTimestampField(generator, "timestamp", product.getTimestamp().getTime(), timestamp);
+                    generator.writeStringField("productId", product.getProductId());
+                    generator.writeNumberField("quantity", product.getQuantity());
+
+                    generator.writeEndObject();
+                }
+
+                generator.writeEndArray();
+            }
+
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("topSellingProducts");
+
+            if (topSelling == null || topSelling.isEmpty()) {
+                generator.writeString("[]");
+            } else {
+
+                generator.writeStartArray();
+
+                for (Map.Entry<String, Long> entry : topSelling.entrySet()) {
+
+                    String productId = entry.getKey();
+                    long itemsSold = entry.getValue();
+
+                    if (productId != null && !productId.isEmpty() && itemsSold > 0) {
+
+                        generator.writeStartObject();
+
+                        generator.writeStringField("productId", productId);
+                        generator.writeNumberField("itemsSold", itemsSold);
+
+                        generator.writeEndObject();
+                    }
+                }
+
+                generator.writeEndArray();
+            }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+
+    /**
+     * write the timestamp through the buffer of the caller, which is re-used for all the
+     * timestamps of a response
+     */
+    private static void writeTimestampField(JsonGenerator generator, String name, long epochMillis, char[] buffer) throws IOException {
+
+        generator.writeFieldName(name);
+
+        int length = IsoTimestamps.format(epochMillis, buffer, 0);
+
+        if (length < 0) {
+            generator.writeString(IsoTimestamps.FORMATTER.format(Instant.ofEpochMilli(epochMillis)));
+        } else {
+            generator.writeString(buffer, 0, length);
+        }
+    }
+}
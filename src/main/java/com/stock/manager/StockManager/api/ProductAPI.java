@@ -1,29 +1,72 @@
 package com.stock.manager.StockManager.api;
 
 
+import com.stock.manager.StockManager.config.MemoryCacheAdapter;
+import com.stock.manager.StockManager.config.MemoryCacheManager;
 import com.stock.manager.StockManager.models.Product;
+import com.stock.manager.StockManager.repository.SaleDelta;
+import com.stock.manager.StockManager.repository.StockUpsert;
 import com.stock.manager.StockManager.service.ProductService;
-import com.stock.manager.StockManager.util.MemoryCache;
+import com.stock.manager.StockManager.service.WriteBehindProductStore;
+import com.stock.manager.StockManager.util.AvailabilityIndex;
+import com.stock.manager.StockManager.util.CacheMaintenance;
+import com.stock.manager.StockManager.util.HeavyHitters;
+import com.stock.manager.StockManager.util.OffHeapStockStore;
+import com.stock.manager.StockManager.util.ConcurrentMemoryCache;
+import com.stock.manager.StockManager.util.SalesEventLog;
+import com.stock.manager.StockManager.util.SalesLedger;
 import com.stock.manager.StockManager.util.SortingHelper;
+import com.stock.manager.StockManager.util.StatisticsCache;
+import com.stock.manager.StockManager.util.StockSnapshot;
+import com.stock.manager.StockManager.util.StringDictionary;
+import com.stock.manager.StockManager.util.StripedLock;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 
-import javax.validation.Valid;
-import java.text.SimpleDateFormat;
-import java.time.Instant;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
@@ -36,19 +79,124 @@ import java.util.Optional;
 public class ProductAPI {
 
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductAPI.class);
+
     /**
-     * we will store the product IDs and the number of items sold in the cache object for a duration
-     * of 1800s since the item was last accessed. We will be able to store for the maximum of 10,000
-     * products info and impose a clean up policies in each 500s the reduce the memory pressure.
-     * <p>
-     * Be mindful that all the saved data will be cleaned after the 1800s. In the production code, I
-     * write the functionality where the data will be stored before end of the period. However, this
-     * is just fine for the testing purpose.
+     * the largest number of the top products of each kind the statistics list
+     */
+    static final int MAX_STATISTICS_LIMIT = 100;
+
+    /**
+     * the number of the write lock stripes a batch holds while it stores a group of its
+     * updates, out of the 64 stripes
+     */
+    static final int STRIPES_PER_TRANSACTION = 8;
+
+    /**
+     * every product ID is given a dense int ID once, when we first see it. The ledger, the
+     * index and the write locks are keyed by the int ID and the product ID is only resolved
+     * back when a response is rendered.
+     */
+    final StringDictionary productIds = StringDictionary.caseInsensitive();
+
+    /**
+     * we will store the product IDs and the number of items sold per day in a ledger keyed
+     * by the dictionary ID of the product. We pre-size it for 10,000 products, however, it grows with
+     * the catalog and the sales of a time range are summed from the buckets of the respective days.
+     */
+    SalesLedger sales = new SalesLedger(10000, productIds);
+
+    /**
+     * the latest stock of every product ordered by the quantity per day. It's updated with
+     * every stored stock and rebuilt from the storage when the app starts.
+     */
+    AvailabilityIndex availability = new AvailabilityIndex(productIds);
+
+    /**
+     * the rendered statistics of the ranges, kept until a stored stock could change them
      */
-    MemoryCache<Product, Integer> cache = new MemoryCache<>(1800, 500, 10000);
+    StatisticsCache statistics = new StatisticsCache();
 
     private ProductService service;
 
+    /**
+     * the in-memory store of the latest stocks, it's only present in the write-behind mode
+     */
+    private WriteBehindProductStore writeBehind;
+
+    /**
+     * the off-heap store of the latest stocks, it's only present if it's enabled. The stock
+     * reads and the timestamp checks of the updates are served from it.
+     */
+    private OffHeapStockStore offHeap;
+
+    /**
+     * the approximate top sellers in a fixed memory, it's only present in the heavy-hitters
+     * mode of the sales and the sales are recorded in it instead of the ledger then
+     */
+    private HeavyHitters heavyHitters;
+
+    /**
+     * the caches of the services, only their statistics are read here
+     */
+    private MemoryCacheManager cacheManager;
+
+    /**
+     * the stock updates of the single update end-point counted by their outcome, there are
+     * no counters if the metrics are not enabled
+     */
+    private Counter[] updateOutcomes;
+
+    private ObjectMapper objectMapper;
+
+    private Validator validator;
+
+    /**
+     * the stock updates are serialized per product over 64 lock stripes, the updates of
+     * the products on the different stripes are stored in parallel.
+     */
+    final StripedLock writeLocks = new StripedLock(64);
+
+    /**
+     * the durable log of the sales, the ledger is rebuilt from it when the app starts. There is
+     * no log if the directory is not configured and the sales only live in the memory then.
+     */
+    SalesEventLog salesLog;
+
+    @Value("${stock.sales-log.dir:}")
+    String salesLogDirectory = "";
+
+    @Value("${stock.sales-log.segment-records:1048576}")
+    int salesLogSegmentRecords = 1 << 20;
+
+    /**
+     * the file of the snapshot of the products and the sales which the app starts from, and the
+     * period between two snapshots. There is no snapshot if the file is not configured.
+     */
+    @Value("${stock.snapshot.file:}")
+    String snapshotFile = "";
+
+    @Value("${stock.snapshot.interval-seconds:300}")
+    long snapshotIntervalSeconds = 300;
+
+    /**
+     * the ledger, or the heavy hitters, only know the sales from before the start if they are
+     * restored from the snapshot or the sales log. Otherwise, the top sellers are read from the
+     * sales rollups of the storage, which keep all the sales.
+     */
+    volatile boolean salesRestored;
+
+    /**
+     * one snapshot is written at a time, the lock is held while the file is written
+     */
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    /**
+     * the number of stock updates the batch end-point stores in one transaction
+     */
+    @Value("${stock.batch.chunk-size:500}")
+    int batchChunkSize = 500;
+
     /**
      * the setter based wiring is used which utilized the reflection based
      * dependency injection inside the IoC container, but, still enable the
@@ -62,11 +210,286 @@ public class ProductAPI {
     }
 
 
+    @Autowired(required = false)
+    public void setWriteBehind(WriteBehindProductStore writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    @Autowired(required = false)
+    public void setHeavyHitters(HeavyHitters heavyHitters) {
+        this.heavyHitters = heavyHitters;
+    }
+
+    @Autowired(required = false)
+    public void setOffHeap(OffHeapStockStore offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    @Autowired(required = false)
+    public void setCacheManager(MemoryCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * count the outcomes of the stock updates and publish the contention of the write locks
+     *
+     * @param registry
+     */
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry registry) {
+
+        StockUpsert.Outcome[] outcomes = StockUpsert.Outcome.values();
+        updateOutcomes = new Counter[outcomes.length];
+
+        for (StockUpsert.Outcome outcome : outcomes) {
+
+            updateOutcomes[outcome.ordinal()] = Counter.builder("stock.updates")
+                    .tags("outcome", outcome.name().toLowerCase(Locale.ROOT),
+                            "status", outcome == StockUpsert.Outcome.OUTDATED ? "204" : "201")
+                    .description("the stock updates of the single update end-point")
+                    .register(registry);
+        }
+
+        FunctionCounter.builder("stock.write.lock.acquisitions", writeLocks, StripedLock::getAcquisitions)
+                .description("the acquisitions of the write locks of the products").register(registry);
+
+        FunctionTimer.builder("stock.write.lock.waits", writeLocks, StripedLock::getContentions,
+                        StripedLock::getWaitNanos, TimeUnit.NANOSECONDS)
+                .description("the time the stock updates waited for the write locks of the products").register(registry);
+    }
+
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Autowired
+    public void setValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+
+    /**
+     * load the latest snapshot of the products and the sales, and replay the sales appended to
+     * the sales log after it. Without a snapshot, or with a snapshot which can't be read, the
+     * availability index is loaded from the storage and the whole sales log is replayed.
+     */
+    @PostConstruct
+    public void load() throws IOException {
+
+        long logPosition = -1;
+
+        if (isConfigured(snapshotFile)) {
+
+            try {
+                logPosition = StockSnapshot.load(Paths.get(snapshotFile), product -> {
+
+                    availability.update(product);
+                    storeOffHeap(product);
+                }, sales);
+            } catch (IOException e) {
+
+                LOGGER.error("the stock snapshot can't be loaded, the app starts from the storage and the whole sales log", e);
+
+                /*
+                 * drop whatever was read from the snapshot before it failed
+                 * */
+                availability.clear();
+                sales.clear();
+
+                if (offHeap != null) {
+                    offHeap.clear();
+                }
+            }
+        }
+
+        if (logPosition < 0) {
+            loadAvailabilityIndex();
+        } else {
+
+            /*
+             * the snapshot is enough to serve the requests, and the products stored after
+             * the snapshot are merged into the index from the storage in the background.
+             * The executor lets its thread go once the merge is done.
+             * */
+            ExecutorService merger = Executors.newSingleThreadExecutor(runnable -> {
+
+                Thread t = new Thread(runnable, "stock-index-merge");
+                t.setDaemon(true);
+
+                return t;
+            });
+
+            CompletableFuture.runAsync(this::mergeAvailabilityIndex, merger).whenComplete((ignored, e) -> {
+
+                if (e != null) {
+                    LOGGER.error("the products of the storage could not be merged into the availability index", e);
+                }
+            });
+
+            merger.shutdown();
+        }
+
+        openSalesLog(Math.max(0, logPosition));
+
+        /*
+         * the snapshot doesn't keep the heavy hitters, only the sales log does
+         * */
+        salesRestored = salesLog != null || (logPosition >= 0 && heavyHitters == null);
+
+        if (isConfigured(snapshotFile) && snapshotIntervalSeconds > 0) {
+            CacheMaintenance.schedule(this, ProductAPI::writeSnapshotQuietly, snapshotIntervalSeconds);
+        }
+    }
+
+
+    private static boolean isConfigured(String path) {
+        return path != null && !path.trim().isEmpty();
+    }
+
+
+    public void loadAvailabilityIndex() {
+
+        List<Product> products = service.findAll();
+
+        availability.rebuild(products);
+        products.forEach(this::storeOffHeap);
+    }
+
+
+    /**
+     * add the products of the storage to the availability index, the index keeps the newer
+     * stock of the two for every product
+     */
+    public void mergeAvailabilityIndex() {
+
+        for (Product product : service.findAll()) {
+            availability.update(product);
+            storeOffHeap(product);
+        }
+
+        statistics.invalidate();
+    }
+
+
+    /**
+     * open the sales log, if we have a directory for it, and replay its sales into the ledger
+     *
+     * @param fromPosition the position of the first sale which is not in the ledger yet
+     * @throws IOException
+     */
+    public void openSalesLog(long fromPosition) throws IOException {
+
+        if (!isConfigured(salesLogDirectory)) {
+            return;
+        }
+
+        salesLog = new SalesEventLog(Paths.get(salesLogDirectory), salesLogSegmentRecords);
+
+        /*
+         * the snapshot doesn't keep the heavy hitters, so their sales are replayed from the
+         * first segment which can hold a sale of their oldest window
+         * */
+        if (heavyHitters != null) {
+            salesLog.replay(salesLog.positionOf(oldestWindowMillis()), heavyHitters::record);
+        } else {
+            salesLog.replay(fromPosition, sales::record);
+        }
+    }
+
+
+    /**
+     * @return the epoch millis of the start of the oldest day the heavy hitters keep
+     */
+    private static long oldestWindowMillis() {
+
+        return LocalDate.now(ZoneOffset.UTC).minusDays(SalesLedger.DAYS - 1)
+                .atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+
+    /**
+     * take a snapshot of the latest stock of the products and the sales. All the updates are
+     * stopped while the state is copied, so the snapshot matches the position of the sales
+     * log, and they continue while the copy is written to the disk. The segments of the
+     * sales log which are in the snapshot are deleted after it's written, except the ones the
+     * heavy hitters still replay from.
+     *
+     * @throws IOException
+     */
+    public void writeSnapshot() throws IOException {
+
+        if (!isConfigured(snapshotFile)) {
+            return;
+        }
+
+        snapshotLock.lock();
+
+        try {
+
+            StockSnapshot snapshot;
+            long position;
+            int[] stripes = writeLocks.lockAll();
+
+            try {
+                position = salesLog == null ? 0 : salesLog.getPosition();
+                snapshot = StockSnapshot.capture(position, availability.products(), sales);
+            } finally {
+                writeLocks.unlockAll(stripes);
+            }
+
+            snapshot.writeTo(Paths.get(snapshotFile));
+
+            if (salesLog != null) {
+
+                if (heavyHitters != null) {
+                    position = Math.min(position, salesLog.positionOf(oldestWindowMillis()));
+                }
+
+                salesLog.deleteBefore(position);
+            }
+
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+
+    private void writeSnapshotQuietly() {
+
+        try {
+            writeSnapshot();
+        } catch (IOException e) {
+            LOGGER.error("the stock snapshot could not be written", e);
+        }
+    }
+
+
+    /**
+     * take the last snapshot and close the sales log when the app is terminated
+     *
+     * @throws IOException
+     */
+    @PreDestroy
+    public void close() throws IOException {
+
+        try {
+            writeSnapshot();
+        } finally {
+
+            if (salesLog != null) {
+                salesLog.close();
+            }
+        }
+    }
+
+
     /**
      * This end-point store the product data inside the database and return the create status (201)
      * <p>
-     * Initially, it looks for stock for the respective product ID and if exists and have a older
-     * entry in the storage, then the POST request proceed and override the existing information.
+     * The stock is inserted if the product is not in the storage, and if it exists with an older
+     * entry, the POST request proceed and override the existing information. Both the check and
+     * the write are done by a single conditional upsert in the storage.
      * <p>
      * If the already stored entry has newer timestamp than the request, then we don't store this
      * info and the end-point returns 204 HTTP
@@ -83,74 +506,406 @@ public class ProductAPI {
     public ResponseEntity<Product> createProduct(@RequestBody @Valid Product product) {
 
         /*
-         * check if a newer stock was processed earlier
+         * the updates of the same product are applied one after another, so the
+         * read, the comparison and the store below are never interleaved
+         * */
+        int id = productIds.idOf(product.getProductId());
+
+        int stripe = writeLocks.stripeFor(id);
+        writeLocks.lock(stripe);
+
+        try {
+
+            /*
+             * a newer stock of the product is already stored, we know it without asking
+             * the storage
+             * */
+            if (offHeap != null && offHeap.timestampOf(product.getProductId()) > product.getTimestamp().getTime()) {
+
+                if (updateOutcomes != null) {
+                    updateOutcomes[StockUpsert.Outcome.OUTDATED.ordinal()].increment();
+                }
+
+                return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+            }
+
+            /*
+             * store the stock unless a newer stock was processed earlier, the decision and
+             * the write are a single statement in the storage
+             * */
+            StockUpsert result = writeBehind == null
+                    ? service.saveIfNewer(product)
+                    : writeBehind.saveIfNewer(product);
+
+            if (updateOutcomes != null) {
+                updateOutcomes[result.getOutcome().ordinal()].increment();
+            }
+
+            /*
+             * outdated stock, because a newer stock was processed first
+             * */
+            if (!result.isStored()) {
+                return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+            }
+
+            /*
+             * If we have fewer stocks than earlier record, the difference is the quantity
+             * which is sold.
+             * <p>
+             * Be mindful, that the company could introduce new stocks in the market (ie
+             * stock split etc) but this is not our concern. We will only count as sold when
+             * the current quantity is lesser than the earlier record. The storage has added
+             * them to its sales rollups in the transaction of the stock.
+             * */
+            int currentSales = result.getItemsSold(product.getQuantity());
+
+            if (currentSales > 0) {
+
+                /*
+                 * update the stock sales record
+                 * */
+                syncSales(recordSale(id, product.getProductId(), product.getTimestamp().getTime(), currentSales));
+            }
+
+            indexStock(id, product);
+
+            return ResponseEntity.status(HttpStatus.CREATED).body(product);
+        } finally {
+            writeLocks.unlock(stripe);
+        }
+    }
+
+
+    /**
+     * This end-point stores a batch of stock updates, either as a JSON array of products or as a
+     * stream of products with one JSON object per line (NDJSON). The updates follow the same rules
+     * as the single update end-point, and an update of the same product later in the batch is
+     * applied on top of the earlier one.
+     * <p>
+     * The request is read and stored in chunks, every chunk reads the existing products with a
+     * single query and stores the accepted updates in one transaction with the JDBC batches.
+     * <p>
+     * We can use a similar cURL request for the POST call for the storage,
+     * <p>
+     * $ curl -i -X POST -H "Content-Type:application/x-ndjson" --data-binary @stocks.ndjson http://localhost:8080/api/v1/products/updateStocks
+     *
+     * @param body the JSON array or the NDJSON stream of the products
+     * @return a JSON array with the product ID and the HTTP status of every update in the order of
+     * the request, where 201 is stored, 204 is outdated and 400 is an invalid product
+     */
+    @PostMapping(value = "/updateStocks", consumes = {"application/json", "application/x-ndjson"}, produces = "application/json")
+    public ResponseEntity<Object> createProducts(InputStream body) throws IOException {
+
+        JSONArray outcomes = new JSONArray();
+        List<Product> chunk = new ArrayList<>(batchChunkSize);
+
+        try (MappingIterator<Product> iterator = objectMapper.readerFor(Product.class).readValues(body)) {
+
+            while (iterator.hasNextValue()) {
+
+                chunk.add(iterator.nextValue());
+
+                if (chunk.size() == batchChunkSize) {
+                    storeChunk(chunk, outcomes);
+                    chunk.clear();
+                }
+            }
+
+        } catch (JsonProcessingException e) {
+
+            /*
+             * the malformed part of the request is not stored, however, we report
+             * the outcome of the chunks which are already stored
+             * */
+            JSONObject error = new JSONObject();
+
+            error.put("error", "malformed stock update after " + outcomes.length() + " items");
+            error.put("outcomes", outcomes);
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error.toString());
+        }
+
+        if (!chunk.isEmpty()) {
+            storeChunk(chunk, outcomes);
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(outcomes.toString());
+    }
+
+
+    /**
+     * decide the outcome of every update of the chunk against the stored products, store the
+     * accepted ones with the JDBC batches and append the outcomes to the response.
+     *
+     * @param chunk    the stock updates in the order of the request
+     * @param outcomes the response to append the product IDs and the HTTP statuses
+     */
+    private void storeChunk(List<Product> chunk, JSONArray outcomes) {
+
+        int[] statuses = new int[chunk.size()];
+
+        /*
+         * the dictionary ID of the product of every valid update
          * */
-        String productId = product.getProductId();
+        int[] keys = new int[chunk.size()];
 
-        Optional<Product> optional = service.findById(productId);
+        for (int i = 0; i < chunk.size(); i++) {
 
-        Product prod;
+            Product product = chunk.get(i);
+
+            if (product == null || product.getTimestamp() == null || !validator.validate(product).isEmpty()) {
+                statuses[i] = HttpStatus.BAD_REQUEST.value();
+            } else {
+                keys[i] = productIds.idOf(product.getProductId());
+            }
+        }
 
         /*
-         * the product was not in the storage, hence, store and return the 201 status
+         * the write-behind store already batches the writes to the database, so the
+         * updates are only applied to the memory one after another, every one of them
+         * under the stripe of its own product
          * */
-        if (!optional.isPresent()) {
+        if (writeBehind != null) {
 
-            service.save(product);
-            cache.put(product, 0);
+            for (int i = 0; i < chunk.size(); i++) {
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(product);
+                if (statuses[i] == 0) {
+                    statuses[i] = createProduct(chunk.get(i)).getStatusCode().value();
+                }
+            }
+
+            appendOutcomes(chunk, statuses, outcomes);
+            return;
         }
 
         /*
-         * the product is already in the storage, so, retrieve the product
+         * the updates are grouped by the blocks of the stripes of their products. Every group
+         * is stored in its own transaction while only its stripes are held, so a chunk spread
+         * over all the stripes never blocks all the single updates for a database round trip.
+         * The updates of the same product are in the same group, in the order of the request.
          * */
-        prod = optional.get();
+        int groupCount = (writeLocks.getStripeCount() + STRIPES_PER_TRANSACTION - 1) / STRIPES_PER_TRANSACTION;
+        List<List<Integer>> groups = new ArrayList<>(groupCount);
+
+        for (int g = 0; g < groupCount; g++) {
+            groups.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+
+            if (statuses[i] == 0) {
+                groups.get(writeLocks.stripeFor(keys[i]) / STRIPES_PER_TRANSACTION).add(i);
+            }
+        }
 
+        for (List<Integer> group : groups) {
+
+            if (group.isEmpty()) {
+                continue;
+            }
+
+            int[] groupKeys = new int[group.size()];
+
+            for (int i = 0; i < groupKeys.length; i++) {
+                groupKeys[i] = keys[group.get(i)];
+            }
+
+            int[] stripes = writeLocks.lockAll(groupKeys);
+
+            try {
+                storeGroup(chunk, statuses, keys, group);
+            } finally {
+                writeLocks.unlockAll(stripes);
+            }
+        }
+
+        appendOutcomes(chunk, statuses, outcomes);
+    }
+
+
+    /**
+     * store the valid updates of a group of the chunk in a single transaction while we hold
+     * the stripes of their products and record the HTTP status of every update.
+     *
+     * @param chunk
+     * @param statuses the HTTP status of every update of the chunk
+     * @param keys     the dictionary ID of the product of every update of the chunk
+     * @param group    the positions of the updates of the group in the chunk
+     */
+    private void storeGroup(List<Product> chunk, int[] statuses, int[] keys, List<Integer> group) {
+
+        Set<String> ids = new HashSet<>();
+
+        for (int i : group) {
+            ids.add(chunk.get(i).getProductId());
+        }
 
         /*
-         * check the timestamp and we have a newer stock, store it in the database
+         * the latest stock of every product of the chunk, keyed by the dictionary ID
          * */
-        if (product.getTimestamp().compareTo(prod.getTimestamp()) >= 0) {
+        Map<Integer, Product> latest = new HashMap<>();
+
+        for (Product product : service.findAllById(ids)) {
+            latest.put(productIds.idOf(product.getProductId()), product);
+        }
+
+        Map<Integer, Product> inserts = new LinkedHashMap<>();
+        Map<Integer, Product> updates = new LinkedHashMap<>();
+
+        List<Integer> accepted = new ArrayList<>();
+        List<Integer> sold = new ArrayList<>();
+        List<SaleDelta> saleDeltas = new ArrayList<>();
+
+        for (int i : group) {
+
+            Product product = chunk.get(i);
+            int key = keys[i];
+
+            Product prod = latest.get(key);
 
             /*
-             * If we have fewer stocks than earlier record, the difference is the quantity
-             * which is sold.
-             * <p>
-             * Be mindful, that the company could introduce new stocks in the market (ie
-             * stock split etc) but this is not our concern. We will only count as sold when
-             * the current quantity is lesser than the earlier record.
+             * outdated stock, because a newer stock was stored or accepted
+             * earlier in the batch
              * */
-            if (product.getQuantity() < prod.getQuantity()) {
+            if (prod != null && product.getTimestamp().compareTo(prod.getTimestamp()) < 0) {
+                statuses[i] = HttpStatus.NO_CONTENT.value();
+                continue;
+            }
 
-                int currentSales = prod.getQuantity() - product.getQuantity();
+            /*
+             * we only count as sold when the current quantity is lesser than the earlier record
+             * */
+            if (prod != null && product.getQuantity() < prod.getQuantity()) {
+                sold.add(i);
+                saleDeltas.add(new SaleDelta(product.getProductId(), product.getTimestamp().getTime(), prod.getQuantity() - product.getQuantity()));
+            }
 
-                Object o = cache.get(prod);
+            /*
+             * the product which is not in the storage yet is inserted with its
+             * latest stock in the batch
+             * */
+            if (prod == null || inserts.containsKey(key)) {
+                inserts.put(key, product);
+            } else {
+                updates.put(key, product);
+            }
 
-                if (o != null) {
+            latest.put(key, product);
+            accepted.add(i);
 
-                    int previousSales = Integer.parseInt(o.toString());
+            statuses[i] = HttpStatus.CREATED.value();
+        }
 
-                    /*
-                     * update the stock sales record
-                     * */
-                    cache.put(product, previousSales + currentSales);
+        try {
+            service.saveAll(inserts.values(), updates.values(), saleDeltas);
+        } catch (DataAccessException e) {
 
-                    /*
-                     * remove the previous information store in the memory for the stock
-                     * */
-                    cache.remove(prod);
-                }
+            /*
+             * another instance of the app has stored one of the products in between, so,
+             * we fall back to the single updates which read the storage again
+             * */
+            for (int i : group) {
+                statuses[i] = createProduct(chunk.get(i)).getStatusCode().value();
             }
 
-            service.save(product);
-            return ResponseEntity.status(HttpStatus.CREATED).body(product);
+            return;
+        }
+
+        long salesPosition = 0;
+
+        for (int i = 0; i < sold.size(); i++) {
+
+            int index = sold.get(i);
+            Product product = chunk.get(index);
+
+            salesPosition = recordSale(keys[index], product.getProductId(), product.getTimestamp().getTime(), saleDeltas.get(i).getItems());
         }
 
         /*
-         * outdated stock, because a newer stock was processed first
+         * the sales of the whole chunk are made durable with a single force of the log
          * */
-        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        syncSales(salesPosition);
+
+        for (int index : accepted) {
+            indexStock(keys[index], chunk.get(index));
+        }
+    }
+
+
+    /**
+     * move the stored stock to its position in the availability index and advance the write
+     * epoch of the statistics, after the sales of the stock are recorded
+     *
+     * @param id      the dictionary ID of the product
+     * @param product
+     */
+    private void indexStock(int id, Product product) {
+
+        storeOffHeap(product);
+
+        long replacedDay = availability.update(id, product);
+        statistics.written(Math.floorDiv(product.getTimestamp().getTime(), 24 * 60 * 60 * 1000L), replacedDay);
+    }
+
+
+    /**
+     * keep the stored stock in the off-heap store, if it's enabled
+     *
+     * @param product
+     */
+    private void storeOffHeap(Product product) {
+
+        if (offHeap != null) {
+            offHeap.putIfNewer(product);
+        }
+    }
+
+
+    /**
+     * record the sale in the ledger and append it to the sales log
+     *
+     * @param id              the dictionary ID of the product
+     * @param productId
+     * @param timestampMillis
+     * @param delta
+     * @return the position of the sale in the log, 0 if we have no log
+     */
+    private long recordSale(int id, String productId, long timestampMillis, long delta) {
+
+        if (heavyHitters != null) {
+            heavyHitters.record(productId, timestampMillis, delta);
+        } else {
+            sales.record(id, timestampMillis, delta);
+        }
+
+        return salesLog == null ? 0 : salesLog.append(productId, timestampMillis, delta);
+    }
+
+
+    /**
+     * wait until the sales up to the position in the log are on the disk
+     *
+     * @param position
+     */
+    private void syncSales(long position) {
+
+        if (salesLog != null && position > 0) {
+            salesLog.sync(position);
+        }
+    }
+
+
+    private static void appendOutcomes(List<Product> chunk, int[] statuses, JSONArray outcomes) {
+
+        for (int i = 0; i < chunk.size(); i++) {
+
+            JSONObject outcome = new JSONObject();
+
+            outcome.put("productId", chunk.get(i) == null ? JSONObject.NULL : chunk.get(i).getProductId());
+            outcome.put("status", statuses[i]);
+
+            outcomes.put(outcome);
+        }
     }
 
 
@@ -166,7 +921,17 @@ public class ProductAPI {
     @GetMapping("/stock")
     public ResponseEntity<Object> findById(@RequestParam("productId") String productId) {
 
-        Optional<Product> optionalProduct = service.findById(productId);
+        Optional<Product> optionalProduct = offHeap == null ? Optional.empty() : offHeap.get(productId);
+
+        /*
+         * the products stored while the off-heap store is loaded are read from the storage
+         * */
+        if (!optionalProduct.isPresent()) {
+
+            optionalProduct = writeBehind == null
+                    ? service.findById(productId)
+                    : writeBehind.findById(productId);
+        }
 
         Product product;
 
@@ -182,214 +947,373 @@ public class ProductAPI {
          * */
         product = optionalProduct.get();
 
-
         /*
-         * build the JSON response for the display
+         * the response is streamed with the timestamps in the standard UTC for the display
          * */
-        JSONObject productData = new JSONObject();
-        JSONObject stockData = new JSONObject();
+        byte[] body = JsonResponses.stock(product, System.currentTimeMillis());
 
-        productData.put("productId", product.getProductId());
-        productData.put("requestTimestamp", Instant.now().toString().replaceFirst("...$", "Z"));
+        return ResponseEntity.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 
-        stockData.put("id", product.getId());
 
-        /*
-         * format to the standard UTC before display to the user
-         * */
-        String format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").format(product.getTimestamp());
-        stockData.put("timestamp", format);
+    /**
+     * the statistics of the caches of the services, which tell how many reads were served
+     * from the memory without reaching the database.
+     * <p>
+     * $ curl -X GET http://localhost:8080/api/v1/products/caches | jq
+     *
+     * @return JSON array with the size, the hits, the misses, the hit rate, the evictions and
+     * the expirations of every cache
+     */
+    @GetMapping("/caches")
+    public ResponseEntity<Object> getCacheStatistics() {
+
+        JSONArray caches = new JSONArray();
+
+        if (cacheManager == null) {
+            return ResponseEntity.status(HttpStatus.OK).body(caches.toString());
+        }
 
-        stockData.put("quantity", product.getQuantity());
+        for (MemoryCacheAdapter adapter : cacheManager.getCaches()) {
 
-        productData.put("stock", stockData);
+            ConcurrentMemoryCache<Object, Object> store = adapter.getNativeCache();
+            JSONObject cache = new JSONObject();
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(productData.toString());
+            cache.put("name", adapter.getName());
+            cache.put("size", store.size());
+            cache.put("hits", store.getHitCount());
+            cache.put("misses", store.getMissCount());
+            cache.put("hitRate", store.getHitRate());
+            cache.put("evictions", store.getEvictionCount());
+            cache.put("expirations", store.getExpirationCount());
+
+            caches.put(cache);
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(caches.toString());
     }
 
 
     /**
-     * the end-point will provide the top 3 available and top 3 sold products
-     * with the requested UTC timestamp and the time range for the query.
+     * the contention of the write lock stripes, which tells whether the stock updates of
+     * the hot products are waiting for each other. Only the stripes which were used are
+     * listed.
      * <p>
-     * We can use a similar cURL request to retrieve the JSON data,
-     * <p>
-     * $ curl -X GET http://localhost:8080/api/v1/products/statistics?time=today | jq
-     * $ curl -X GET http://localhost:8080/api/v1/products/statistics?time=lastMonth | jq
+     * $ curl -X GET http://localhost:8080/api/v1/products/writeLocks | jq
      *
-     * @param time will only accept value as "today" or "lastMonth" and query on the
-     *             respective time range
-     *             <p>
-     * @return JSON string with the statistics info for the products
+     * @return JSON array with the acquisitions, the contended acquisitions, the total wait
+     * time in millis and the current waiting threads of every stripe
      */
-    @GetMapping("/statistics")
-    public ResponseEntity<Object> getStockStatistics(@RequestParam("time") String time) {
+    @GetMapping("/writeLocks")
+    public ResponseEntity<Object> getWriteLockStatistics() {
 
-        JSONObject statistics = new JSONObject();
+        JSONArray stripes = new JSONArray();
 
-        JSONArray topAvailableProducts = new JSONArray();
-        JSONArray topSellingProducts = new JSONArray();
+        for (int i = 0; i < writeLocks.getStripeCount(); i++) {
 
-        statistics.put("requestTimestamp", Instant.now());
+            long acquisitions = writeLocks.getAcquisitions(i);
 
-        if (time.equals("today") || time.equals("lastMonth")) {
-            statistics.put("range", time);
-        } else {
+            if (acquisitions == 0) {
+                continue;
+            }
 
+            JSONObject stripe = new JSONObject();
 
-            statistics.put("range", "");
-            statistics.append("topAvailableProducts", "[]");
-            statistics.append("topSellingProducts", "[]");
+            stripe.put("stripe", i);
+            stripe.put("acquisitions", acquisitions);
+            stripe.put("contentions", writeLocks.getContentions(i));
+            stripe.put("waitMillis", writeLocks.getWaitNanos(i) / 1_000_000);
+            stripe.put("queueLength", writeLocks.getQueueLength(i));
 
-            /*
-             * the query is out of the respective range and we have nothing to show
-             * */
-            return ResponseEntity.status(HttpStatus.CREATED).body(statistics.toString());
+            stripes.put(stripe);
         }
 
-        Optional<List<Product>> optional = findTopThreeAvailableProducts(time);
+        return ResponseEntity.status(HttpStatus.OK).body(stripes.toString());
+    }
+
 
-        List<Product> products = null;
-        JSONObject object = null;
+    /**
+     * the state of the write-behind persistence, how many products are waiting to be written
+     * to the database and how long the updates waited for it.
+     * <p>
+     * $ curl -X GET http://localhost:8080/api/v1/products/writeBehind | jq
+     *
+     * @return JSON with the write-behind metrics, or 204 if the app doesn't run in the
+     * write-behind mode
+     */
+    @GetMapping("/writeBehind")
+    public ResponseEntity<Object> getWriteBehindStatistics() {
 
-        if (!optional.isPresent()) {
-            statistics.append("topAvailableProducts", "[]");
+        if (writeBehind == null) {
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         }
 
-        /*
-         * we have products availability information
-         * */
-        else {
+        JSONObject statistics = new JSONObject();
+
+        statistics.put("queueDepth", writeBehind.getQueueDepth());
+        statistics.put("lastFlushLagMillis", writeBehind.getLastFlushLagMillis());
+        statistics.put("maxFlushLagMillis", writeBehind.getMaxFlushLagMillis());
+        statistics.put("coalescedUpdates", writeBehind.getCoalescedUpdates());
+        statistics.put("flushedProducts", writeBehind.getFlushedProducts());
+        statistics.put("flushes", writeBehind.getFlushes());
+        statistics.put("failedFlushes", writeBehind.getFailedFlushes());
+
+        return ResponseEntity.status(HttpStatus.OK).body(statistics.toString());
+    }
 
-            products = optional.get();
 
-            for (int i = 0; i < products.size(); i++) {
+    /**
+     * the memory and the load factor of the off-heap store of the latest stocks.
+     * <p>
+     * $ curl -X GET http://localhost:8080/api/v1/products/offHeap | jq
+     *
+     * @return JSON with the products, the allocated direct memory, the slots and the load
+     * factor of the index, or 204 if the store is not enabled
+     */
+    @GetMapping("/offHeap")
+    public ResponseEntity<Object> getOffHeapStatistics() {
 
-                Product product = products.get(i);
+        if (offHeap == null) {
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
 
-                object = new JSONObject();
+        JSONObject statistics = new JSONObject();
 
-                object.put("id", product.getId());
-                object.put("timestamp", product.getTimestamp());
-                object.put("productId", product.getProductId());
-                object.put("quantity", product.getQuantity());
+        statistics.put("products", offHeap.size());
+        statistics.put("memoryBytes", offHeap.getMemoryBytes());
+        statistics.put("capacity", offHeap.getCapacity());
+        statistics.put("loadFactor", offHeap.getLoadFactor());
 
-                topAvailableProducts.put(i, object);
+        return ResponseEntity.status(HttpStatus.OK).body(statistics.toString());
+    }
+
+
+    /**
+     * the end-point will provide the top available and top sold products with the requested
+     * UTC timestamp and the time range for the query. The range is either one of the named
+     * ranges of "today" or "lastMonth", or the days between "from" and "to" (both inclusive,
+     * ISO dates in UTC). There are 3 products of each by default and up to
+     * {@value #MAX_STATISTICS_LIMIT} with the "limit".
+     * <p>
+     * We can use a similar cURL request to retrieve the JSON data,
+     * <p>
+     * $ curl -X GET http://localhost:8080/api/v1/products/statistics?time=today | jq
+     * $ curl -X GET http://localhost:8080/api/v1/products/statistics?time=lastMonth | jq
+     * $ curl -X GET "http://localhost:8080/api/v1/products/statistics?from=2026-09-15&to=2026-10-14&limit=10" | jq
+     *
+     * The statistics of a named range are only computed again after a stock update could change
+     * them, so the request timestamp is the time they were computed. The responses carry an
+     * ETag, and a client which sends it back in the If-None-Match header gets 304 as long as
+     * the statistics didn't change. The statistics of the arbitrary ranges are computed for
+     * every request.
+     *
+     * @param time        the named range of "today" or "lastMonth"
+     * @param from        the first day of the range, if there is no named range
+     * @param to          the last day of the range, if there is no named range
+     * @param limit       the number of the top products of each kind
+     * @param ifNoneMatch the ETags of the statistics the client already has
+     * @return JSON string with the statistics info for the products, or 400 if the range or
+     * the limit is invalid
+     */
+    @GetMapping("/statistics")
+    public ResponseEntity<Object> getStockStatistics(@RequestParam(value = "time", required = false) String time,
+                                                     @RequestParam(value = "from", required = false) String from,
+                                                     @RequestParam(value = "to", required = false) String to,
+                                                     @RequestParam(value = "limit", defaultValue = "3") int limit,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (limit < 1 || limit > MAX_STATISTICS_LIMIT) {
+            return badStatisticsRequest("the limit must be between 1 and " + MAX_STATISTICS_LIMIT);
+        }
+
+        if (time == null) {
+
+            if (from == null || to == null) {
+                return badStatisticsRequest("either the time or both the from and the to days are required");
             }
 
-            statistics.append("topAvailableProducts", topAvailableProducts);
+            LocalDate first;
+            LocalDate last;
+
+            try {
+                first = LocalDate.parse(from);
+                last = LocalDate.parse(to);
+            } catch (DateTimeParseException e) {
+                return badStatisticsRequest("the from and the to days must be ISO dates, ie 2026-10-18");
+            }
+
+            if (first.isAfter(last)) {
+                return badStatisticsRequest("the from day must not be after the to day");
+            }
+
+            byte[] body = statisticsOf(first + "/" + last, first, last, limit);
+
+            return ResponseEntity.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON).body(body);
         }
 
+        LocalDate[] period = periodOf(time);
+
         /*
-         * get the info for the top selling products
+         * the query is out of the respective range and we have nothing to show
          * */
-        Map<Product, Integer> map = findTopSellingProducts(3, time);
+        if (period == null || !time.equals("today") && !time.equals("lastMonth")) {
 
-        if (map == null || map.isEmpty()) {
-            statistics.append("topSellingProducts", "[]");
+            return ResponseEntity.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON)
+                    .body(JsonResponses.statistics(System.currentTimeMillis(), "", null, null));
         }
 
         /*
-         * we have the stock sales info
+         * the write-behind store adds the sales to the rollups when it flushes, after the
+         * cache has seen the writes, so the results read from the rollups are not kept
          * */
-        else {
-
-            for (Map.Entry<Product, Integer> entry : map.entrySet()) {
+        if (writeBehind != null && readsSalesRollups(period[0])) {
 
-                String productId = entry.getKey().getProductId();
+            return ResponseEntity.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON)
+                    .body(statisticsOf(time, period[0], period[1], limit));
+        }
 
-                int itemsSold = entry.getValue();
+        long fromDay = period[0].toEpochDay();
+        long toDay = period[1].toEpochDay();
 
-                if (productId != null && !productId.isEmpty() && itemsSold > 0) {
+        /*
+         * the limits are bounded, so are the results we keep per named range
+         * */
+        String key = time + "-" + limit;
 
-                    object = new JSONObject();
+        StatisticsCache.Result result = statistics.get(key, fromDay, toDay);
 
-                    object.put("productId", productId);
-                    object.put("itemsSold", itemsSold);
+        if (result == null) {
 
-                    topSellingProducts.put(object);
-                }
-            }
+            long version = statistics.version(toDay);
+            byte[] body = statisticsOf(time, period[0], period[1], limit);
 
-            statistics.append("topSellingProducts", topSellingProducts);
+            result = statistics.put(key, fromDay, toDay, version, body);
         }
 
-        /*
-         * ask the GC to take care of the object at the end of the request
-         * */
-        object = null;
+        if (StatisticsCache.matches(ifNoneMatch, result.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(result.getEtag()).cacheControl(CacheControl.noCache()).build();
+        }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(statistics.toString());
+        return ResponseEntity.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON)
+                .eTag(result.getEtag()).cacheControl(CacheControl.noCache()).body(result.getBody());
     }
 
 
     /**
-     * find the top 3 available products based on their stock quantity
-     * from the database. The method only accept parameters of "today" or
-     * "lastMonth" as the time range to query inside the database. If anything
-     * else is provided as the range argument, it will return an empty list.
+     * render the top available and the top selling products of the days
      *
-     * @param range the range for the query and only accept "today" or "lastMonth"
-     *              as an argument
-     * @return An Optional list of top 3 available products from the database
+     * @param range the name of the range in the response
+     * @param from
+     * @param to
+     * @param limit
+     * @return the UTF-8 JSON bytes
      */
-    public Optional<List<Product>> findTopThreeAvailableProducts(String range) {
+    private byte[] statisticsOf(String range, LocalDate from, LocalDate to, int limit) {
 
-        LocalDate now = LocalDate.now(ZoneOffset.UTC);
+        List<Product> topAvailable = findTopAvailableProducts(from, to, limit);
 
-        String start;
-        String end;
+        /*
+         * get the info for the top selling products
+         * */
+        Map<String, Long> topSelling = findTopSellingProducts(limit, from, to);
 
-        if (range.equalsIgnoreCase("today")) {
+        return JsonResponses.statistics(System.currentTimeMillis(), range, topAvailable, topSelling);
+    }
 
-            start = now.toString();
-            end = now.toString();
-        } else if (range.equalsIgnoreCase("lastMonth")) {
 
-            LocalDate lastMonth = now.minus(1, ChronoUnit.MONTHS);
+    private static ResponseEntity<Object> badStatisticsRequest(String message) {
 
-            LocalDate firstDate = lastMonth.withDayOfMonth(1);
-            LocalDate lastDate = lastMonth.withDayOfMonth(lastMonth.lengthOfMonth());
+        JSONObject error = new JSONObject();
+        error.put("error", message);
 
-            start = firstDate.toString();
-            end = lastDate.toString();
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).contentType(MediaType.APPLICATION_JSON).body(error.toString());
+    }
 
-        } else {
-            return Optional.empty();
+
+    /**
+     * @param range "today" or "lastMonth"
+     * @return the first and the last day of the range in UTC, or null if the range is not supported
+     */
+    private static LocalDate[] periodOf(String range) {
+
+        LocalDate now = LocalDate.now(ZoneOffset.UTC);
+
+        if (range.equalsIgnoreCase("today")) {
+            return new LocalDate[]{now, now};
         }
 
-        Optional<List<Product>> products = service.findTopThreeAvailableProducts(start, end);
+        if (range.equalsIgnoreCase("lastMonth")) {
 
-        if (!products.isPresent()) {
-            return Optional.empty();
+            LocalDate lastMonth = now.minus(1, ChronoUnit.MONTHS);
+            return new LocalDate[]{lastMonth.withDayOfMonth(1), lastMonth.withDayOfMonth(lastMonth.lengthOfMonth())};
         }
 
-        return products;
+        return null;
     }
 
 
     /**
-     * the function oversees the cache storage and find the top "n" top selling products
-     * for the time duration provided. For the duration, it only accepts the value of
-     * "today" or "lastMonth" and deliver data within the range.
+     * find the top "n" available products based on their stock quantity from the availability
+     * index, whose latest stock is between the days (both inclusive). The index holds the latest
+     * stock of every stored product whatever its day, so, no range is read from the storage.
+     *
+     * @param from
+     * @param to
+     * @param n
+     * @return the products, the largest quantity first
+     */
+    public List<Product> findTopAvailableProducts(LocalDate from, LocalDate to, int n) {
+        return availability.topAvailable(from.toEpochDay(), to.toEpochDay(), n);
+    }
+
+
+    /**
+     * the function oversees the sales records and find the top "n" top selling products
+     * between the days (both inclusive). The ledger only keeps the last {@value SalesLedger#DAYS}
+     * days, the ranges which start before them, and all the ranges if the ledger was not
+     * restored at the start, are read from the daily sales rollups of the storage. In the
+     * heavy-hitters mode, the top sellers of the same days are estimated by the
+     * {@link HeavyHitters}.
      *
      * @param n    count of the top selling products need to retrieve
-     * @param time time range to query the data, only accepts the value of "today" or "lastMonth"
-     * @return Map with items where key is the Product itself and the quantity of stocks sold as value
+     * @param from
+     * @param to
+     * @return Map with items where key is the product ID and the quantity of stocks sold as value
      */
-    public Map<Product, Integer> findTopSellingProducts(int n, String time) {
+    public Map<String, Long> findTopSellingProducts(int n, LocalDate from, LocalDate to) {
+
+        if (readsSalesRollups(from)) {
+
+            Map<String, Long> rollups = service.findTopSellingProducts(from.toEpochDay(), to.toEpochDay(), n);
+
+            /*
+             * the rollups keep the product IDs in the lower case, they are shown the way the
+             * ledger shows them
+             * */
+            Map<String, Long> topSelling = new LinkedHashMap<>();
+
+            rollups.forEach((productId, items) -> {
 
-        if (!time.equalsIgnoreCase("today")
-                && !time.equalsIgnoreCase("lastMonth")) {
+                int id = productIds.find(productId);
+                topSelling.put(id < 0 ? productId : productIds.valueOf(id), items);
+            });
 
-            return new HashMap<>();
+            return topSelling;
         }
 
-        Map<Product, Integer> cacheValues = cache.convertToMap();
-//        Map<Product, Integer> cacheValues = cache.convertToMap2();
+        if (heavyHitters != null) {
+            return heavyHitters.topSelling(n, from.toEpochDay(), to.toEpochDay());
+        }
 
-        Map<Product, Integer> map = SortingHelper.SortMapBasedOnValues(cacheValues, n, time);
-        return map;
+        return SortingHelper.topSelling(sales, n, from.toEpochDay(), to.toEpochDay());
     }
 
+
+    /**
+     * @param from the first day of the range
+     * @return true if the top sellers of the range are read from the sales rollups
+     */
+    private boolean readsSalesRollups(LocalDate from) {
+        return !salesRestored || from.isBefore(LocalDate.now(ZoneOffset.UTC).minusDays(SalesLedger.DAYS - 1));
+    }
 }
@@ -0,0 +1,64 @@
+package com.stock.manager.StockManager.config;
+
+import com.stock.manager.StockManager.models.Product;
+import com.stock.manager.StockManager.util.EvictionPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The caching of the services with the {@link MemoryCacheManager}.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+
+    @Value("${stock.cache.time-to-live-seconds:600}")
+    private long timeToLive;
+
+    @Value("${stock.cache.cleanup-interval-seconds:60}")
+    private long timerInterval;
+
+    @Value("${stock.cache.max-items:100000}")
+    private int maxItems;
+
+    @Value("${stock.cache.eviction-policy:W_TINY_LFU}")
+    private EvictionPolicy policy;
+
+
+    @Bean
+    public MemoryCacheManager cacheManager() {
+        return new MemoryCacheManager(timeToLive, timerInterval, maxItems, policy);
+    }
+
+
+    /**
+     * the product IDs are case-insensitive in the storage, so the products are cached by the
+     * lower case product ID. The key is the product ID of the first argument, either passed
+     * as it is or as the product.
+     *
+     * @return
+     */
+    @Bean
+    public KeyGenerator productKeyGenerator() {
+        return (target, method, params) -> productKey(params[0]);
+    }
+
+
+    /**
+     * @param productOrId the product or its ID
+     * @return the key of the product in the cache
+     */
+    public static String productKey(Object productOrId) {
+
+        String productId = productOrId instanceof Product ? ((Product) productOrId).getProductId() : (String) productOrId;
+        return productId.toLowerCase(Locale.ROOT);
+    }
+}
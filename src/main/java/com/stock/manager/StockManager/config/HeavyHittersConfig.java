@@ -0,0 +1,58 @@
+package com.stock.manager.StockManager.config;
+
+import com.stock.manager.StockManager.util.HeavyHitters;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The approximate top sellers, which are only tracked when the app runs with
+ * {@code stock.sales.mode=heavy-hitters}. The sales are then recorded in the fixed memory of
+ * the {@link HeavyHitters} instead of the exact sales ledger, which keeps the buckets of every
+ * product of the catalog.
+ */
+@Configuration
+@ConditionalOnProperty(name = "stock.sales.mode", havingValue = "heavy-hitters")
+public class HeavyHittersConfig {
+
+
+    @Value("${stock.sales.heavy-hitters.capacity:1024}")
+    private int capacity;
+
+    @Value("${stock.sales.heavy-hitters.width:2048}")
+    private int width;
+
+    @Value("${stock.sales.heavy-hitters.depth:4}")
+    private int depth;
+
+
+    @Bean
+    public HeavyHitters heavyHitters() {
+        return new HeavyHitters(capacity, width, depth);
+    }
+
+
+    /**
+     * the memory and the error rate of the sketches
+     *
+     * @param heavyHitters
+     * @return
+     */
+    @Bean
+    public MeterBinder heavyHittersMetrics(HeavyHitters heavyHitters) {
+
+        return registry -> {
+
+            Gauge.builder("stock.sales.heavy.hitters.memory", heavyHitters, HeavyHitters::getMemoryBytes)
+                    .baseUnit("bytes").description("the memory of the sketches and the summaries of the sales").register(registry);
+
+            Gauge.builder("stock.sales.heavy.hitters.error.rate", heavyHitters, HeavyHitters::getErrorRate)
+                    .description("the share of the items sold of a range a product could be over-estimated by").register(registry);
+        };
+    }
+}
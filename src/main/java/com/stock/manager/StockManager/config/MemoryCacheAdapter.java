@@ -0,0 +1,134 @@
+package com.stock.manager.StockManager.config;
+
+import com.stock.manager.StockManager.util.ConcurrentMemoryCache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The Spring {@link org.springframework.cache.Cache} view of a {@link ConcurrentMemoryCache},
+ * so the caching annotations of the services are backed by our own cache with its expiry,
+ * eviction policy and statistics.
+ * <p>
+ * The puts and the evictions made inside a transaction are only applied after the transaction
+ * commits, so the cache never holds a stock which was rolled back. The values loaded by a
+ * cache miss are only inserted if nobody cached a value for the key in the meantime, hence, a
+ * slow read of the storage never overrides a newer stock which is just written.
+ */
+public class MemoryCacheAdapter extends AbstractValueAdaptingCache {
+
+
+    private final String name;
+    private final ConcurrentMemoryCache<Object, Object> store;
+
+
+    /**
+     * @param name
+     * @param store           the cache which keeps the values
+     * @param allowNullValues whether the absent values are cached too
+     */
+    public MemoryCacheAdapter(String name, ConcurrentMemoryCache<Object, Object> store, boolean allowNullValues) {
+
+        super(allowNullValues);
+
+        this.name = name;
+        this.store = store;
+    }
+
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public ConcurrentMemoryCache<Object, Object> getNativeCache() {
+        return store;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return store.get(key);
+    }
+
+
+    /**
+     * find the value of the key, or load and cache it if the key is not cached yet. The
+     * concurrent misses of the same key may load the value more than once, but all of them
+     * return the value which won the place in the cache.
+     *
+     * @param key
+     * @param valueLoader
+     * @return
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+
+        Object stored = lookup(key);
+
+        if (stored != null) {
+            return (T) fromStoreValue(stored);
+        }
+
+        T value;
+
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+
+        stored = store.putIfAbsent(key, toStoreValue(value));
+
+        return stored == null ? value : (T) fromStoreValue(stored);
+    }
+
+
+    @Override
+    public void put(Object key, Object value) {
+
+        Object stored = toStoreValue(value);
+        afterCommit(() -> store.put(key, stored));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return toValueWrapper(store.putIfAbsent(key, toStoreValue(value)));
+    }
+
+    @Override
+    public void evict(Object key) {
+        afterCommit(() -> store.remove(key));
+    }
+
+    @Override
+    public void clear() {
+        afterCommit(store::clear);
+    }
+
+
+    /**
+     * run the change of the cache once the current transaction commits, or right away if
+     * there is no transaction
+     */
+    private static void afterCommit(Runnable change) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,134 @@
+package com.stock.manager.StockManager.config;
+
+import com.stock.manager.StockManager.util.ConcurrentMemoryCache;
+import com.stock.manager.StockManager.util.EvictionPolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The {@link CacheManager} which creates a {@link MemoryCacheAdapter} for every cache name the
+ * first time it's asked for. All the caches share the same expiry, size and eviction policy.
+ * <p>
+ * The statistics of every cache are published as the meters of the registry it's bound to,
+ * the caches created after the binding are published as soon as they are created.
+ */
+public class MemoryCacheManager implements CacheManager, MeterBinder {
+
+
+    private final ConcurrentMap<String, MemoryCacheAdapter> caches = new ConcurrentHashMap<>();
+
+    private final long timeToLive;
+    private final long timerInterval;
+    private final int maxItems;
+    private final EvictionPolicy policy;
+
+    private volatile MeterRegistry registry;
+
+
+    /**
+     * @param timeToLive    the seconds an item lives since it's last accessed
+     * @param timerInterval the seconds between two cleanups of the expired items
+     * @param maxItems      the max. items of every cache
+     * @param policy        the eviction policy of the full caches
+     */
+    public MemoryCacheManager(long timeToLive, long timerInterval, int maxItems, EvictionPolicy policy) {
+
+        this.timeToLive = timeToLive;
+        this.timerInterval = timerInterval;
+        this.maxItems = maxItems;
+        this.policy = policy;
+    }
+
+
+    @Override
+    public MemoryCacheAdapter getCache(String name) {
+
+        return caches.computeIfAbsent(name, n -> {
+
+            MemoryCacheAdapter cache = new MemoryCacheAdapter(n,
+                    new ConcurrentMemoryCache<>(timeToLive, timerInterval, maxItems, policy,
+                            4 * Runtime.getRuntime().availableProcessors()), true);
+
+            MeterRegistry meters = registry;
+
+            if (meters != null) {
+                bind(cache, meters);
+            }
+
+            return cache;
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+
+    /**
+     * @return the caches created so far
+     */
+    public Collection<MemoryCacheAdapter> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        this.registry = registry;
+
+        for (MemoryCacheAdapter cache : caches.values()) {
+            bind(cache, registry);
+        }
+    }
+
+
+    /**
+     * the size, the lookups, the evictions, the rejected admissions and the expirations of the
+     * cache, and the time the threads waited for its locks and the time of its cleanups
+     */
+    private static void bind(MemoryCacheAdapter cache, MeterRegistry registry) {
+
+        ConcurrentMemoryCache<Object, Object> store = cache.getNativeCache();
+        String name = cache.getName();
+
+        Gauge.builder("cache.size", store, ConcurrentMemoryCache::size)
+                .tag("cache", name).description("the number of items in the cache").register(registry);
+
+        FunctionCounter.builder("cache.gets", store, ConcurrentMemoryCache::getHitCount)
+                .tags("cache", name, "result", "hit").description("the lookups of the cache").register(registry);
+
+        FunctionCounter.builder("cache.gets", store, ConcurrentMemoryCache::getMissCount)
+                .tags("cache", name, "result", "miss").description("the lookups of the cache").register(registry);
+
+        FunctionCounter.builder("cache.evictions", store, ConcurrentMemoryCache::getEvictionCount)
+                .tag("cache", name).description("the items removed to make room for the new ones").register(registry);
+
+        FunctionCounter.builder("cache.puts.rejected", store, ConcurrentMemoryCache::getRejectionCount)
+                .tag("cache", name).description("the items the eviction policy didn't admit").register(registry);
+
+        FunctionCounter.builder("cache.expirations", store, ConcurrentMemoryCache::getExpirationCount)
+                .tag("cache", name).description("the items removed after the time to live").register(registry);
+
+        FunctionTimer.builder("cache.lock.waits", store, ConcurrentMemoryCache::getContentionCount,
+                        ConcurrentMemoryCache::getLockWaitNanos, TimeUnit.NANOSECONDS)
+                .tag("cache", name).description("the time the threads waited for the locks of the segments").register(registry);
+
+        FunctionTimer.builder("cache.cleanups", store, ConcurrentMemoryCache::getCleanupCount,
+                        ConcurrentMemoryCache::getCleanupNanos, TimeUnit.NANOSECONDS)
+                .tag("cache", name).description("the cleanups of the expired items").register(registry);
+    }
+}
@@ -0,0 +1,55 @@
+package com.stock.manager.StockManager.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The meters of the database round trips. The repository methods are timed by Spring Data
+ * and the end-points by Spring MVC, here we publish the counts of the statements and the
+ * queries Hibernate sends to the database, which tell how many round trips a request makes.
+ * They are only counted with hibernate.generate_statistics enabled, which is off by default
+ * as it adds the bookkeeping to every session, and the meters are not registered without it.
+ */
+@Configuration
+public class MetricsConfig {
+
+
+    @Bean
+    public MeterBinder hibernateStatementMetrics(EntityManagerFactory entityManagerFactory) {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        return registry -> {
+
+            if (!statistics.isStatisticsEnabled()) {
+                return;
+            }
+
+            FunctionCounter.builder("hibernate.statements", statistics, Statistics::getPrepareStatementCount)
+                    .description("the JDBC statements prepared, a round trip each unless they are batched")
+                    .register(registry);
+
+            FunctionCounter.builder("hibernate.queries", statistics, Statistics::getQueryExecutionCount)
+                    .description("the HQL and the native queries executed").register(registry);
+
+            FunctionCounter.builder("hibernate.flushes", statistics, Statistics::getFlushCount)
+                    .description("the flushes of the sessions").register(registry);
+
+            FunctionCounter.builder("hibernate.entities", statistics, Statistics::getEntityLoadCount)
+                    .tag("operation", "load").description("the entities read from the database").register(registry);
+
+            FunctionCounter.builder("hibernate.entities", statistics, Statistics::getEntityInsertCount)
+                    .tag("operation", "insert").description("the entities inserted into the database").register(registry);
+
+            FunctionCounter.builder("hibernate.entities", statistics, Statistics::getEntityUpdateCount)
+                    .tag("operation", "update").description("the entities updated in the database").register(registry);
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package com.stock.manager.StockManager.config;
+
+import com.stock.manager.StockManager.util.OffHeapStockStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The off-heap store of the latest stocks, which is only created when the app runs with
+ * {@code stock.offheap.enabled=true}. The stock reads and the timestamp checks of the stock
+ * updates are then served from it instead of the product cache.
+ */
+@Configuration
+@ConditionalOnProperty(name = "stock.offheap.enabled", havingValue = "true")
+public class OffHeapStoreConfig {
+
+
+    @Value("${stock.offheap.expected-products:1000000}")
+    private int expectedProducts;
+
+
+    @Bean
+    public OffHeapStockStore offHeapStockStore() {
+        return new OffHeapStockStore(expectedProducts);
+    }
+
+
+    /**
+     * the size, the direct memory and the load factor of the index of the store
+     *
+     * @param store
+     * @return
+     */
+    @Bean
+    public MeterBinder offHeapStockStoreMetrics(OffHeapStockStore store) {
+
+        return registry -> {
+
+            Gauge.builder("stock.offheap.products", store, OffHeapStockStore::size)
+                    .description("the products in the off-heap store").register(registry);
+
+            Gauge.builder("stock.offheap.memory", store, OffHeapStockStore::getMemoryBytes)
+                    .baseUnit("bytes").description("the direct memory allocated by the off-heap store").register(registry);
+
+            Gauge.builder("stock.offheap.load.factor", store, OffHeapStockStore::getLoadFactor)
+                    .description("the share of the taken slots of the off-heap index").register(registry);
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.stock.manager.StockManager.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The requests run on virtual threads with {@code spring.threads.virtual.enabled=true}, which
+ * Spring Boot only honours on a Java 21 runtime. We warn about the mode being asked for on an
+ * older runtime, where the requests silently stay on the Tomcat pool.
+ */
+@Configuration
+public class ThreadingConfig {
+
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    private Environment environment;
+
+
+    @Autowired
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+
+    @PostConstruct
+    public void check() {
+
+        boolean requested = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+
+        if (requested && !Threading.VIRTUAL.isActive(environment)) {
+            LOGGER.warn("the virtual threads need a Java 21 runtime, the requests run on the Tomcat pool of {} threads",
+                    environment.getProperty("server.tomcat.threads.max", "200"));
+        } else if (requested) {
+            LOGGER.info("the requests run on virtual threads, limited by the connection pool of {} connections",
+                    environment.getProperty("spring.datasource.hikari.maximum-pool-size", "10"));
+        }
+    }
+}
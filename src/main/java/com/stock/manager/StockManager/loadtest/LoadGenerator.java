@@ -0,0 +1,418 @@
+package com.stock.manager.StockManager.loadtest;
+
+import com.stock.manager.StockManager.util.IsoTimestamps;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * Drives the stock update, the stock and the statistics end-points concurrently at a constant
+ * rate and records the latency of every request in the HdrHistogram of its end-point.
+ * <p>
+ * The requests are sent on a fixed schedule, every connection has its own share of the rate,
+ * and the latency of a request is measured from the time it was scheduled at instead of the
+ * time it was sent. A stall of the app delays all the requests scheduled during the stall, and
+ * they are recorded with the time they waited, so the histograms are not flattered by the
+ * coordinated omission of a client which only sends when the previous response is back.
+ * <p>
+ * The products are picked by a {@link ZipfianDistribution}, so the load concentrates on a few
+ * hot products the same way as the load of a real catalog.
+ */
+@Component
+@Profile("loadtest")
+public class LoadGenerator {
+
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final String API = "/api/v1/products";
+
+    /**
+     * the highest latency the histograms track, in micro-seconds
+     */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    @Value("${stock.load.products:10000}")
+    int products = 10000;
+
+    /**
+     * the requests per second of all the connections together
+     */
+    @Value("${stock.load.rate:2000}")
+    int rate = 2000;
+
+    @Value("${stock.load.zipf-exponent:0.99}")
+    double zipfExponent = 0.99;
+
+    /**
+     * the share of the stock updates and the statistics in the requests, the rest are the
+     * stock reads
+     */
+    @Value("${stock.load.write-ratio:0.2}")
+    double writeRatio = 0.2;
+
+    @Value("${stock.load.statistics-ratio:0.05}")
+    double statisticsRatio = 0.05;
+
+    @Value("${stock.load.warmup-seconds:10}")
+    int warmupSeconds = 10;
+
+    @Value("${stock.load.duration-seconds:60}")
+    int durationSeconds = 60;
+
+    @Value("${stock.load.connections:64}")
+    int connections = 64;
+
+    /**
+     * the directory the percentile distributions of the end-points are written to, they are
+     * not written if it's empty
+     */
+    @Value("${stock.load.report-dir:}")
+    String reportDirectory = "";
+
+
+    /**
+     * the end-points the load is made of
+     */
+    public enum Operation {
+
+        UPDATE_STOCK, STOCK, STATISTICS
+    }
+
+
+    /**
+     * the latencies and the errors of the requests of an end-point in the measured period
+     */
+    public static final class Result {
+
+        private final Operation operation;
+        private final Histogram histogram;
+        private final long errors;
+        private final double seconds;
+
+        private Result(Operation operation, Histogram histogram, long errors, double seconds) {
+            this.operation = operation;
+            this.histogram = histogram;
+            this.errors = errors;
+            this.seconds = seconds;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return the latencies in micro-seconds
+         */
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        public long getCount() {
+            return histogram.getTotalCount();
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return the requests per second
+         */
+        public double getThroughput() {
+            return histogram.getTotalCount() / seconds;
+        }
+    }
+
+
+    /**
+     * the recorders are shared by the connections, they record without locking
+     */
+    private final Recorder[] recorders = new Recorder[Operation.values().length];
+    private final AtomicLong[] errors = new AtomicLong[Operation.values().length];
+
+    /**
+     * the last quantity of every product, the updates sell a few items of it
+     */
+    private AtomicIntegerArray quantities;
+
+    private String[] productIds;
+    private String[] stockUrls;
+    private ZipfianDistribution distribution;
+
+
+    /**
+     * store a stock of every product, then run the load for the warm-up and the measured
+     * period and report the latencies of the measured period
+     *
+     * @param baseUrl the URL of the app, ie. http://localhost:8080
+     * @return the results of the end-points
+     */
+    public List<Result> run(String baseUrl) throws IOException, InterruptedException {
+
+        for (Operation operation : Operation.values()) {
+            recorders[operation.ordinal()] = new Recorder(MAX_LATENCY_MICROS, 3);
+            errors[operation.ordinal()] = new AtomicLong();
+        }
+
+        distribution = new ZipfianDistribution(products, zipfExponent);
+        quantities = new AtomicIntegerArray(products);
+        productIds = new String[products];
+        stockUrls = new String[products];
+
+        for (int i = 0; i < products; i++) {
+            productIds[i] = "Product ID" + i;
+            stockUrls[i] = baseUrl + API + "/stock?productId=" + URLEncoder.encode(productIds[i], StandardCharsets.UTF_8);
+        }
+
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(connections);
+        pool.setDefaultMaxPerRoute(connections);
+
+        double seconds;
+
+        try (CloseableHttpClient client = HttpClients.custom().setConnectionManager(pool).build()) {
+
+            seed(client, baseUrl);
+
+            LOGGER.info("the load of {} requests/s over {} connections for {} + {} seconds on {} products",
+                    rate, connections, warmupSeconds, durationSeconds, products);
+
+            long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            long measureStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            long end = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+            /*
+             * every connection sends its share of the rate, the schedules of the connections
+             * are shifted so that the requests are spread evenly
+             * */
+            long interval = TimeUnit.SECONDS.toNanos(connections) / rate;
+
+            List<Thread> workers = new ArrayList<>(connections);
+
+            for (int i = 0; i < connections; i++) {
+
+                long first = start + interval * i / connections;
+                SplittableRandom random = new SplittableRandom(i);
+
+                Thread worker = new Thread(() -> send(client, baseUrl, random, first, interval, measureStart, end),
+                        "load-generator-" + i);
+
+                worker.setDaemon(true);
+                worker.start();
+                workers.add(worker);
+            }
+
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            /*
+             * the throughput is what the app achieved, the requests scheduled in the measured
+             * period may only be done after its end if the app falls behind
+             * */
+            seconds = (System.nanoTime() - measureStart) / 1e9;
+        }
+
+        List<Result> results = new ArrayList<>();
+
+        for (Operation operation : Operation.values()) {
+
+            Histogram histogram = recorders[operation.ordinal()].getIntervalHistogram();
+            results.add(new Result(operation, histogram, errors[operation.ordinal()].get(), seconds));
+        }
+
+        report(results);
+
+        return results;
+    }
+
+
+    /**
+     * store the first stock of every product with the batch end-point
+     */
+    private void seed(CloseableHttpClient client, String baseUrl) throws IOException {
+
+        String timestamp = IsoTimestamps.toString(System.currentTimeMillis());
+        StringBuilder body = new StringBuilder();
+
+        for (int i = 0; i < products; i++) {
+
+            quantities.set(i, 100_000);
+
+            body.append(stockJson(productIds[i], timestamp, 100_000)).append('\n');
+
+            if ((i + 1) % 1000 == 0 || i == products - 1) {
+
+                HttpPost post = new HttpPost(baseUrl + API + "/updateStocks");
+                post.setEntity(new StringEntity(body.toString(), ContentType.create("application/x-ndjson", StandardCharsets.UTF_8)));
+
+                try (CloseableHttpResponse response = client.execute(post)) {
+
+                    EntityUtils.consume(response.getEntity());
+
+                    if (response.getStatusLine().getStatusCode() >= 300) {
+                        throw new IOException("the products could not be stored: " + response.getStatusLine());
+                    }
+                }
+
+                body.setLength(0);
+            }
+        }
+    }
+
+
+    /**
+     * send the requests of a connection on its schedule until the end of the load
+     */
+    private void send(CloseableHttpClient client, String baseUrl, SplittableRandom random,
+                      long first, long interval, long measureStart, long end) {
+
+        for (long scheduled = first; scheduled < end; scheduled += interval) {
+
+            long delay = scheduled - System.nanoTime();
+
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+
+            double mix = random.nextDouble();
+            int product = distribution.sample(random);
+
+            Operation operation;
+            HttpUriRequest request;
+
+            if (mix < writeRatio) {
+
+                operation = Operation.UPDATE_STOCK;
+                request = update(baseUrl, product, random);
+
+            } else if (mix < writeRatio + statisticsRatio) {
+
+                operation = Operation.STATISTICS;
+                request = new HttpGet(baseUrl + API + "/statistics?time=" + (random.nextBoolean() ? "today" : "lastMonth"));
+
+            } else {
+
+                operation = Operation.STOCK;
+                request = new HttpGet(stockUrls[product]);
+            }
+
+            boolean failed;
+
+            try (CloseableHttpResponse response = client.execute(request)) {
+
+                EntityUtils.consume(response.getEntity());
+
+                int status = response.getStatusLine().getStatusCode();
+                failed = status >= 300 && status != HttpStatus.SC_NOT_MODIFIED;
+
+            } catch (IOException e) {
+                failed = true;
+            }
+
+            /*
+             * the latency includes the time the request waited for its turn, not only the
+             * time it was on the wire
+             * */
+            long latency = System.nanoTime() - scheduled;
+
+            if (scheduled >= measureStart) {
+
+                recorders[operation.ordinal()].recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latency), MAX_LATENCY_MICROS));
+
+                if (failed) {
+                    errors[operation.ordinal()].incrementAndGet();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * a newer stock of the product, with a few items sold since the last one and restocked
+     * once it's sold out
+     */
+    private HttpPost update(String baseUrl, int product, SplittableRandom random) {
+
+        int quantity = quantities.updateAndGet(product, current -> current < 10 ? 100_000 : current - 1 - random.nextInt(9));
+
+        HttpPost post = new HttpPost(baseUrl + API + "/updateStock");
+        post.setEntity(new StringEntity(stockJson(productIds[product], IsoTimestamps.toString(System.currentTimeMillis()), quantity),
+                ContentType.APPLICATION_JSON));
+
+        return post;
+    }
+
+
+    private static String stockJson(String productId, String timestamp, int quantity) {
+        return "{\"productId\": \"" + productId + "\", \"id\": \"Stock ID\", \"timestamp\": \"" + timestamp + "\", \"quantity\": " + quantity + "}";
+    }
+
+
+    /**
+     * log the throughput and the percentiles of every end-point, and write their percentile
+     * distributions if the report directory is configured
+     */
+    private void report(List<Result> results) throws IOException {
+
+        StringBuilder table = new StringBuilder(String.format("%n%-14s %10s %8s %12s %10s %10s %10s %10s%n",
+                "end-point", "requests", "errors", "requests/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+        for (Result result : results) {
+
+            Histogram histogram = result.getHistogram();
+
+            table.append(String.format("%-14s %10d %8d %12.1f %10.3f %10.3f %10.3f %10.3f%n",
+                    result.getOperation(), result.getCount(), result.getErrors(), result.getThroughput(),
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0));
+        }
+
+        LOGGER.info("the latencies at the target of {} requests/s, measured from the scheduled times{}", rate, table);
+
+        if (reportDirectory.isEmpty()) {
+            return;
+        }
+
+        File directory = new File(reportDirectory);
+        directory.mkdirs();
+
+        for (Result result : results) {
+
+            try (PrintStream out = new PrintStream(new File(directory, result.getOperation().name().toLowerCase() + ".hgrm"), "UTF-8")) {
+                result.getHistogram().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+}
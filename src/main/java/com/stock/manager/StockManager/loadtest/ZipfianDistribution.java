@@ -0,0 +1,88 @@
+package com.stock.manager.StockManager.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The Zipfian distribution of the ranks 0 to n - 1, where the probability of the rank k is
+ * proportional to 1 / (k + 1)^s. The exponent of 0 is the uniform distribution, and the larger
+ * exponents concentrate the samples on the first few ranks, the hot products of a catalog.
+ * <p>
+ * The cumulative probabilities are computed once, a sample is a binary search of them.
+ */
+public class ZipfianDistribution {
+
+
+    private final double[] cumulative;
+
+
+    /**
+     * @param n        the number of ranks
+     * @param exponent the skew of the distribution, 0 or more
+     */
+    public ZipfianDistribution(int n, double exponent) {
+
+        if (n < 1 || exponent < 0) {
+            throw new IllegalArgumentException("n must be positive and the exponent non-negative");
+        }
+
+        cumulative = new double[n];
+
+        double sum = 0;
+
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+
+        /*
+         * the rounding must not leave a sample of 0.99999.. above the last rank
+         * */
+        cumulative[n - 1] = 1.0;
+    }
+
+
+    /**
+     * @param random
+     * @return the next rank
+     */
+    public int sample(SplittableRandom random) {
+        return rankOf(random.nextDouble());
+    }
+
+
+    /**
+     * @param uniform a number in [0, 1)
+     * @return the rank the uniform number falls into
+     */
+    int rankOf(double uniform) {
+
+        int index = Arrays.binarySearch(cumulative, uniform);
+
+        /*
+         * the insertion point is the first rank whose cumulative probability is above
+         * the number
+         * */
+        return index >= 0 ? Math.min(index + 1, cumulative.length - 1) : -index - 1;
+    }
+
+
+    /**
+     * @param rank
+     * @return the probability of the rank
+     */
+    public double probability(int rank) {
+        return rank == 0 ? cumulative[0] : cumulative[rank] - cumulative[rank - 1];
+    }
+
+
+    public int size() {
+        return cumulative.length;
+    }
+}
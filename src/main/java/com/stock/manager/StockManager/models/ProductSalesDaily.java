@@ -0,0 +1,85 @@
+package com.stock.manager.StockManager.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The items sold of a product in an epoch day. The rows are only incremented with the sales
+ * of the stock updates, see {@link com.stock.manager.StockManager.repository.SalesRollupRepository}.
+ */
+@Entity
+@Table(name = "product_sales_daily", indexes = @Index(name = "idx_product_sales_daily_day", columnList = "epoch_day, product_id, items_sold"))
+@IdClass(ProductSalesDaily.Key.class)
+public class ProductSalesDaily {
+
+    @Id
+    @Column(name = "product_id")
+    private String productId;
+
+    @Id
+    @Column(name = "epoch_day")
+    private long epochDay;
+
+    @Column(name = "items_sold")
+    private long itemsSold;
+
+
+    public ProductSalesDaily() {
+    }
+
+    public ProductSalesDaily(String productId, long epochDay, long itemsSold) {
+        this.productId = productId;
+        this.epochDay = epochDay;
+        this.itemsSold = itemsSold;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    public long getItemsSold() {
+        return itemsSold;
+    }
+
+
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String productId;
+        private long epochDay;
+
+        public Key() {
+        }
+
+        public Key(String productId, long epochDay) {
+            this.productId = productId;
+            this.epochDay = epochDay;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return epochDay == key.epochDay && Objects.equals(productId, key.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(productId, epochDay);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.stock.manager.StockManager.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The kind of the database server behind the connections of a repository. It's detected from
+ * the metadata of the first connection and kept for the later ones, so the repositories pick
+ * their native statements without asking the driver every time.
+ */
+final class DatabaseServer {
+
+
+    enum Kind {
+
+        /**
+         * MySQL 8.0.19 or newer, which refers the inserted row of an upsert by its row alias
+         */
+        MYSQL,
+
+        /**
+         * MariaDB, which has no row alias and refers the inserted row with VALUES()
+         */
+        MARIADB,
+
+        /**
+         * the standard SQL, ie H2 in the tests
+         */
+        OTHER
+    }
+
+    private volatile Kind kind;
+
+
+    /**
+     * @param connection
+     * @return the kind of the server of the connection
+     * @throws SQLException
+     */
+    Kind of(Connection connection) throws SQLException {
+
+        Kind result = kind;
+
+        if (result == null) {
+
+            String database = connection.getMetaData().getDatabaseProductName();
+
+            /*
+             * the MySQL driver names a MariaDB server MySQL, only its version tells them apart
+             * */
+            if ("MariaDB".equalsIgnoreCase(database) || ("MySQL".equalsIgnoreCase(database)
+                    && connection.getMetaData().getDatabaseProductVersion().contains("MariaDB"))) {
+                result = Kind.MARIADB;
+            } else if ("MySQL".equalsIgnoreCase(database)) {
+                result = Kind.MYSQL;
+            } else {
+                result = Kind.OTHER;
+            }
+
+            kind = result;
+        }
+
+        return result;
+    }
+}
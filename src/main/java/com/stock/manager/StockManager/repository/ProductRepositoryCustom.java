@@ -0,0 +1,22 @@
+package com.stock.manager.StockManager.repository;
+
+import com.stock.manager.StockManager.models.Product;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The storage operations of the products which are not derived by Spring Data.
+ */
+public interface ProductRepositoryCustom {
+
+
+    /**
+     * insert the product, or override its stored stock only if the provided stock is as new
+     * or newer than the stored one. The decision and the write are a single atomic operation,
+     * so it has to run inside a transaction.
+     *
+     * @param product the latest stock of the product
+     * @return the outcome and the previously stored quantity
+     */
+    StockUpsert upsertIfNewer(Product product);
+}
@@ -0,0 +1,193 @@
+package com.stock.manager.StockManager.repository;
+
+import com.stock.manager.StockManager.models.Product;
+import org.hibernate.Session;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The conditional upsert of the stocks. On MySQL and MariaDB it's a single INSERT ... ON
+ * DUPLICATE KEY UPDATE statement, on the other databases (ie H2 in the tests) the stored row
+ * is read with a row lock and then inserted or updated in the same transaction.
+ * <p>
+ * The outcome of the upsert is read from the last insert ID, which Connector/J only hands
+ * back for the rows the statement found. That's the default of the driver (CLIENT_FOUND_ROWS),
+ * the upsert fails on a connection opened with useAffectedRows=true.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+
+    private static final long OUTDATED_OFFSET = 1L << 32;
+
+    /**
+     * the assignments of ON DUPLICATE KEY UPDATE are applied from the left to the right and
+     * every assignment sees the columns assigned before it, so the timestamp is assigned last.
+     * <p>
+     * The previous quantity is handed back in the last insert ID of the statement, which the
+     * server sends with the result of the statement and costs no extra round trip. It's 0 for
+     * an insert, the previous quantity plus 1 for an update and the previous quantity plus
+     * {@link #OUTDATED_OFFSET} for an outdated stock.
+     * <p>
+     * The inserted row is referred by its row alias, VALUES() is deprecated since MySQL 8.0.20.
+     */
+    private static final String MYSQL_UPSERT =
+            "INSERT INTO product (product_id, stock_id, stock_timestamp, quantity) VALUES (?, ?, ?, ?) AS new " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "quantity = IF(new.stock_timestamp >= product.stock_timestamp, " +
+                    "IF(LAST_INSERT_ID(product.quantity + 1) > 0, new.quantity, product.quantity), " +
+                    "IF(LAST_INSERT_ID(product.quantity + " + OUTDATED_OFFSET + ") > 0, product.quantity, product.quantity)), " +
+                    "stock_id = IF(new.stock_timestamp >= product.stock_timestamp, new.stock_id, product.stock_id), " +
+                    "stock_timestamp = GREATEST(new.stock_timestamp, product.stock_timestamp)";
+
+    /**
+     * the same upsert for MariaDB, which has no row alias
+     */
+    private static final String MARIADB_UPSERT =
+            "INSERT INTO product (product_id, stock_id, stock_timestamp, quantity) VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "quantity = IF(VALUES(stock_timestamp) >= stock_timestamp, " +
+                    "IF(LAST_INSERT_ID(quantity + 1) > 0, VALUES(quantity), quantity), " +
+                    "IF(LAST_INSERT_ID(quantity + " + OUTDATED_OFFSET + ") > 0, quantity, quantity)), " +
+                    "stock_id = IF(VALUES(stock_timestamp) >= stock_timestamp, VALUES(stock_id), stock_id), " +
+                    "stock_timestamp = GREATEST(VALUES(stock_timestamp), stock_timestamp)";
+
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT stock_timestamp, quantity FROM product WHERE product_id = ? FOR UPDATE";
+
+    private static final String INSERT =
+            "INSERT INTO product (product_id, stock_id, stock_timestamp, quantity) VALUES (?, ?, ?, ?)";
+
+    private static final String UPDATE =
+            "UPDATE product SET stock_id = ?, stock_timestamp = ?, quantity = ? WHERE product_id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DatabaseServer server = new DatabaseServer();
+
+
+    @Override
+    public StockUpsert upsertIfNewer(Product product) {
+
+        Session session = entityManager.unwrap(Session.class);
+
+        return session.doReturningWork(connection -> upsertIfNewer(connection, product));
+    }
+
+
+    /**
+     * the upsert on the connection of the current transaction
+     *
+     * @param connection
+     * @param product
+     * @return
+     * @throws SQLException
+     */
+    StockUpsert upsertIfNewer(Connection connection, Product product) throws SQLException {
+
+        switch (server.of(connection)) {
+
+            case MYSQL:
+                return upsertOnMySql(connection, MYSQL_UPSERT, product);
+
+            case MARIADB:
+                return upsertOnMySql(connection, MARIADB_UPSERT, product);
+
+            default:
+                return upsertWithRowLock(connection, product);
+        }
+    }
+
+
+    private static StockUpsert upsertOnMySql(Connection connection, String sql, Product product) throws SQLException {
+
+        try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            statement.setString(1, product.getProductId());
+            statement.setString(2, product.getId());
+            statement.setTimestamp(3, product.getTimestamp());
+            statement.setInt(4, product.getQuantity());
+
+            /*
+             * the row is always found, inserted or changed, unless the driver only counts the
+             * changed rows. An outdated stock leaves its row unchanged, we would then get no
+             * last insert ID and take it for an insert.
+             * */
+            if (statement.executeUpdate() == 0) {
+                throw new IllegalStateException("the stock upsert needs the found rows, open the connection without useAffectedRows=true");
+            }
+
+            long lastInsertId = 0;
+
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+
+                if (keys.next()) {
+                    lastInsertId = keys.getLong(1);
+                }
+            }
+
+            if (lastInsertId == 0) {
+                return StockUpsert.inserted();
+            }
+
+            if (lastInsertId >= OUTDATED_OFFSET) {
+                return StockUpsert.outdated((int) (lastInsertId - OUTDATED_OFFSET));
+            }
+
+            return StockUpsert.updated((int) (lastInsertId - 1));
+        }
+    }
+
+
+    private static StockUpsert upsertWithRowLock(Connection connection, Product product) throws SQLException {
+
+        try (PreparedStatement select = connection.prepareStatement(SELECT_FOR_UPDATE)) {
+
+            select.setString(1, product.getProductId());
+
+            try (ResultSet row = select.executeQuery()) {
+
+                if (row.next()) {
+
+                    int previousQuantity = row.getInt(2);
+
+                    if (product.getTimestamp().compareTo(row.getTimestamp(1)) < 0) {
+                        return StockUpsert.outdated(previousQuantity);
+                    }
+
+                    try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+
+                        update.setString(1, product.getId());
+                        update.setTimestamp(2, product.getTimestamp());
+                        update.setInt(3, product.getQuantity());
+                        update.setString(4, product.getProductId());
+
+                        update.executeUpdate();
+                    }
+
+                    return StockUpsert.updated(previousQuantity);
+                }
+            }
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+
+            insert.setString(1, product.getProductId());
+            insert.setString(2, product.getId());
+            insert.setTimestamp(3, product.getTimestamp());
+            insert.setInt(4, product.getQuantity());
+
+            insert.executeUpdate();
+        }
+
+        return StockUpsert.inserted();
+    }
+}
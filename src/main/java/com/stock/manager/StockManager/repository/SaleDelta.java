@@ -0,0 +1,43 @@
+package com.stock.manager.StockManager.repository;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The items sold of a product revealed by a single stock update, to be added to the sales
+ * rollups of the hour and the day of the update.
+ */
+public final class SaleDelta {
+
+
+    private final String productId;
+    private final long timestampMillis;
+    private final long items;
+
+
+    public SaleDelta(String productId, long timestampMillis, long items) {
+        this.productId = productId;
+        this.timestampMillis = timestampMillis;
+        this.items = items;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getItems() {
+        return items;
+    }
+
+    @Override
+    public String toString() {
+        return "SaleDelta{" +
+                "productId='" + productId + '\'' +
+                ", timestampMillis=" + timestampMillis +
+                ", items=" + items +
+                '}';
+    }
+}
@@ -0,0 +1,195 @@
+package com.stock.manager.StockManager.repository;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The daily rollups of the sales in the product_sales_daily table. The sales are added as
+ * increments of the rows of their day, so the items sold in a range are summed from a row per
+ * product and day instead of the single sales. The statistics are only asked for whole days,
+ * like the buckets of the {@link com.stock.manager.StockManager.util.SalesLedger}, so there is
+ * no finer rollup to keep up to date. On MySQL and MariaDB an increment is an INSERT ... ON DUPLICATE KEY UPDATE, on
+ * the other databases (ie H2 in the tests) it's the standard MERGE.
+ * <p>
+ * The increments have to run inside the transaction of the stock updates they belong to.
+ */
+@Repository
+public class SalesRollupRepository {
+
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    private static final String MYSQL_INCREMENT =
+            "INSERT INTO %1$s (product_id, %2$s, items_sold) VALUES (?, ?, ?) AS new " +
+                    "ON DUPLICATE KEY UPDATE items_sold = %1$s.items_sold + new.items_sold";
+
+    private static final String MARIADB_INCREMENT =
+            "INSERT INTO %1$s (product_id, %2$s, items_sold) VALUES (?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE items_sold = items_sold + VALUES(items_sold)";
+
+    private static final String MERGE_INCREMENT =
+            "MERGE INTO %1$s t USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS BIGINT), CAST(? AS BIGINT))) " +
+                    "s (product_id, period, items_sold) ON t.product_id = s.product_id AND t.%2$s = s.period " +
+                    "WHEN MATCHED THEN UPDATE SET items_sold = t.items_sold + s.items_sold " +
+                    "WHEN NOT MATCHED THEN INSERT (product_id, %2$s, items_sold) VALUES (s.product_id, s.period, s.items_sold)";
+
+    /**
+     * the range is a scan of the index on (epoch_day, product_id, items_sold)
+     */
+    private static final String TOP_SELLING =
+            "SELECT product_id, SUM(items_sold) AS items FROM product_sales_daily WHERE epoch_day >= ? AND epoch_day <= ? " +
+                    "GROUP BY product_id ORDER BY items DESC, product_id LIMIT ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DatabaseServer server = new DatabaseServer();
+
+
+    /**
+     * the items sold of a product in a period, the sales of the same product and period are
+     * summed before they are sent to the database
+     */
+    private static final class Increment {
+
+        private final String productId;
+        private final long period;
+        private long items;
+
+        private Increment(String productId, long period) {
+            this.productId = productId;
+            this.period = period;
+        }
+    }
+
+
+    /**
+     * add the sales to the rollups of their days with one batch of increments
+     *
+     * @param sales
+     */
+    public void add(Collection<SaleDelta> sales) {
+
+        if (sales.isEmpty()) {
+            return;
+        }
+
+        entityManager.unwrap(Session.class).doWork(connection -> add(connection, sales));
+    }
+
+
+    /**
+     * add the sales to the rollups on the connection of the current transaction
+     *
+     * @param connection
+     * @param sales
+     * @throws SQLException
+     */
+    void add(Connection connection, Collection<SaleDelta> sales) throws SQLException {
+
+        Map<String, Increment> daily = new LinkedHashMap<>();
+
+        for (SaleDelta sale : sales) {
+            sum(daily, sale, Math.floorDiv(sale.getTimestampMillis(), MILLIS_PER_DAY));
+        }
+
+        increment(connection, "product_sales_daily", "epoch_day", daily.values());
+    }
+
+
+    /**
+     * the product IDs are matched case-insensitively, so they are written in the lower case.
+     * The key of the rollups compares them as they are on some databases (ie H2), and the
+     * increments of the same product would go to the different rows otherwise.
+     */
+    private static void sum(Map<String, Increment> increments, SaleDelta sale, long period) {
+
+        String productId = sale.getProductId().toLowerCase(Locale.ROOT);
+        String key = productId + '\u0000' + period;
+
+        increments.computeIfAbsent(key, k -> new Increment(productId, period)).items += sale.getItems();
+    }
+
+
+    private void increment(Connection connection, String table, String periodColumn, Collection<Increment> increments) throws SQLException {
+
+        String sql;
+
+        switch (server.of(connection)) {
+
+            case MYSQL:
+                sql = MYSQL_INCREMENT;
+                break;
+
+            case MARIADB:
+                sql = MARIADB_INCREMENT;
+                break;
+
+            default:
+                sql = MERGE_INCREMENT;
+        }
+
+        sql = String.format(sql, table, periodColumn);
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            for (Increment increment : increments) {
+
+                statement.setString(1, increment.productId);
+                statement.setLong(2, increment.period);
+                statement.setLong(3, increment.items);
+
+                statement.addBatch();
+            }
+
+            statement.executeBatch();
+        }
+    }
+
+
+    /**
+     * find the top selling products between the epoch days (both inclusive), summed from a
+     * row per product and day
+     *
+     * @param fromEpochDay
+     * @param toEpochDay
+     * @param limit        the number of products to find
+     * @return the items sold keyed by the lower case product ID, the largest first
+     */
+    public Map<String, Long> topSelling(long fromEpochDay, long toEpochDay, int limit) {
+
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+
+            Map<String, Long> result = new LinkedHashMap<>();
+
+            try (PreparedStatement statement = connection.prepareStatement(TOP_SELLING)) {
+
+                statement.setLong(1, fromEpochDay);
+                statement.setLong(2, toEpochDay);
+                statement.setInt(3, limit);
+
+                try (ResultSet rows = statement.executeQuery()) {
+
+                    while (rows.next()) {
+                        result.put(rows.getString(1), rows.getLong(2));
+                    }
+                }
+            }
+
+            return result;
+        });
+    }
+}
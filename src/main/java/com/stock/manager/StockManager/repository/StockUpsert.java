@@ -0,0 +1,88 @@
+package com.stock.manager.StockManager.repository;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The result of the conditional upsert of a stock, it tells whether the stock was stored
+ * and which quantity it replaced.
+ */
+public final class StockUpsert {
+
+
+    public enum Outcome {
+
+        /**
+         * the product was not in the storage and the stock is inserted
+         */
+        INSERTED,
+
+        /**
+         * the stored stock was older (or as old) and it's overridden
+         */
+        UPDATED,
+
+        /**
+         * a newer stock was stored earlier, so nothing is changed
+         */
+        OUTDATED
+    }
+
+    private static final StockUpsert INSERTED = new StockUpsert(Outcome.INSERTED, 0);
+
+    private final Outcome outcome;
+    private final int previousQuantity;
+
+
+    private StockUpsert(Outcome outcome, int previousQuantity) {
+        this.outcome = outcome;
+        this.previousQuantity = previousQuantity;
+    }
+
+    public static StockUpsert inserted() {
+        return INSERTED;
+    }
+
+    public static StockUpsert updated(int previousQuantity) {
+        return new StockUpsert(Outcome.UPDATED, previousQuantity);
+    }
+
+    public static StockUpsert outdated(int previousQuantity) {
+        return new StockUpsert(Outcome.OUTDATED, previousQuantity);
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return true if the stock is stored, either inserted or updated
+     */
+    public boolean isStored() {
+        return outcome != Outcome.OUTDATED;
+    }
+
+    /**
+     * @return the quantity stored before the upsert, 0 if the product was not in the storage
+     */
+    public int getPreviousQuantity() {
+        return previousQuantity;
+    }
+
+    /**
+     * we only count as sold when the stored quantity is lesser than the earlier record
+     *
+     * @param quantity the quantity of the stock which is upserted
+     * @return the items sold with the stock, 0 if it's not an update to a lesser quantity
+     */
+    public int getItemsSold(int quantity) {
+        return outcome == Outcome.UPDATED && quantity < previousQuantity ? previousQuantity - quantity : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "StockUpsert{" +
+                "outcome=" + outcome +
+                ", previousQuantity=" + previousQuantity +
+                '}';
+    }
+}
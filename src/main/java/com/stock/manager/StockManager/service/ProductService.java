@@ -1,12 +1,28 @@
 package com.stock.manager.StockManager.service;
 
+import com.stock.manager.StockManager.config.CacheConfig;
 import com.stock.manager.StockManager.models.Product;
 import com.stock.manager.StockManager.repository.ProductRepository;
+import com.stock.manager.StockManager.repository.SaleDelta;
+import com.stock.manager.StockManager.repository.SalesRollupRepository;
+import com.stock.manager.StockManager.repository.StockUpsert;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -15,34 +31,195 @@ import java.util.Optional;
 @Service
 public class ProductService {
 
+
+    /**
+     * the cache of the latest stock of the products, keyed by the lower case product ID
+     */
+    public static final String PRODUCT_CACHE = "products";
+
     private ProductRepository repository;
 
+    /**
+     * the daily rollups of the sales, they are written in the transactions of
+     * the stock updates which reveal the sales
+     */
+    private SalesRollupRepository salesRollup;
+
+    private Cache productCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     public void setProductRepository(ProductRepository productRepository) {
         this.repository = productRepository;
     }
 
+    @Autowired
+    public void setSalesRollup(SalesRollupRepository salesRollup) {
+        this.salesRollup = salesRollup;
+    }
+
+    @Autowired(required = false)
+    public void setCacheManager(CacheManager cacheManager) {
+        this.productCache = cacheManager.getCache(PRODUCT_CACHE);
+    }
+
+    /**
+     * find the product in the cache, or read it from the storage and cache it. The products
+     * which are not in the storage are cached as absent until they are stored.
+     *
+     * @param id
+     * @return
+     */
+    @Cacheable(cacheNames = PRODUCT_CACHE, keyGenerator = "productKeyGenerator", sync = true)
     @Transactional(rollbackFor = Exception.class)
     public Optional<Product> findById(String id) {
         return repository.findById(id);
     }
 
     @Transactional(rollbackFor = Exception.class)
-    public Optional<List<Product>> findTopThreeAvailableProducts(String start, String end) {
-
-        return repository.findTopThreeAvailableProducts(start, end);
+    public List<Product> findAll() {
+        return (List<Product>) repository.findAll();
     }
 
     @Transactional(rollbackFor = Exception.class)
-    public List<Product> findAll() {
-        return (List<Product>) repository.findAll();
+    public List<Product> findAllById(Iterable<String> ids) {
+        return (List<Product>) repository.findAllById(ids);
     }
 
+    @CachePut(cacheNames = PRODUCT_CACHE, keyGenerator = "productKeyGenerator")
     @Transactional(rollbackFor = Exception.class)
     public Product save(Product Product) {
         return repository.save(Product);
     }
 
+    /**
+     * store the stock only if it's as new or newer than the stored one, the decision and the
+     * write are a single round trip to the database. The items sold with the stock are added
+     * to the sales rollups in the same transaction.
+     *
+     * @param product
+     * @return the outcome and the previously stored quantity
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public StockUpsert saveIfNewer(Product product) {
+        return saveIfNewer(product, true);
+    }
+
+    /**
+     * store the stock only if it's as new or newer than the stored one
+     *
+     * @param product
+     * @param rollUpSale whether the items sold with the stock are added to the sales rollups,
+     *                   false if the caller accounts for the sales itself
+     * @return the outcome and the previously stored quantity
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public StockUpsert saveIfNewer(Product product, boolean rollUpSale) {
+
+        StockUpsert upsert = repository.upsertIfNewer(product);
+
+        if (upsert.isStored()) {
+            cache(product);
+        }
+
+        int itemsSold = upsert.getItemsSold(product.getQuantity());
+
+        if (rollUpSale && itemsSold > 0 && salesRollup != null) {
+            salesRollup.add(Collections.singletonList(new SaleDelta(product.getProductId(), product.getTimestamp().getTime(), itemsSold)));
+        }
+
+        return upsert;
+    }
+
+    /**
+     * store the new products and the newer stocks of the existing products in one transaction.
+     * The new products are persisted and the existing ones are re-attached for the update
+     * without reading them first, so Hibernate sends them to the database in JDBC batches
+     * when the transaction is flushed.
+     *
+     * @param inserts the products which are not in the storage yet
+     * @param updates the products which are in the storage and need to be overridden
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void saveAll(Collection<Product> inserts, Collection<Product> updates) {
+        saveAll(inserts, updates, Collections.emptyList());
+    }
+
+    /**
+     * store the products like the {@link #saveAll(Collection, Collection)}, and add the sales
+     * revealed by their stocks to the sales rollups in the same transaction
+     *
+     * @param inserts the products which are not in the storage yet
+     * @param updates the products which are in the storage and need to be overridden
+     * @param sales   the items sold with the stocks
+     */
+    @SuppressWarnings("deprecation")
+    @Transactional(rollbackFor = Exception.class)
+    public void saveAll(Collection<Product> inserts, Collection<Product> updates, Collection<SaleDelta> sales) {
+
+        Session session = entityManager.unwrap(Session.class);
+
+        for (Product product : inserts) {
+            session.persist(product);
+        }
+
+        /*
+         * the merge would read every product before the update, the deprecated
+         * update re-attaches them as they are
+         * */
+        for (Product product : updates) {
+            session.update(product);
+        }
+
+        if (salesRollup != null) {
+            salesRollup.add(sales);
+        }
+
+        inserts.forEach(this::cache);
+        updates.forEach(this::cache);
+    }
+
+    /**
+     * add the sales to the rollups, for the sales whose stocks were stored separately
+     *
+     * @param sales
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void saveSales(Collection<SaleDelta> sales) {
+
+        if (salesRollup != null) {
+            salesRollup.add(sales);
+        }
+    }
+
+    /**
+     * find the top selling products between the epoch days (both inclusive) from the sales
+     * rollups, they cover all the sales since the rollups were introduced
+     *
+     * @param fromEpochDay
+     * @param toEpochDay
+     * @param limit
+     * @return the items sold keyed by the lower case product ID, the largest first
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Long> findTopSellingProducts(long fromEpochDay, long toEpochDay, int limit) {
+        return salesRollup == null ? Collections.emptyMap() : salesRollup.topSelling(fromEpochDay, toEpochDay, limit);
+    }
+
+    /**
+     * write the stored product through to the cache, the cache is only updated once the
+     * transaction commits
+     */
+    private void cache(Product product) {
+
+        if (productCache != null) {
+            productCache.put(CacheConfig.productKey(product), product);
+        }
+    }
+
+    @CacheEvict(cacheNames = PRODUCT_CACHE, allEntries = true)
     @Transactional(rollbackFor = Exception.class)
     public void deleteAll() {
         repository.deleteAll();
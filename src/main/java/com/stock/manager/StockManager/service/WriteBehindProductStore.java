@@ -0,0 +1,411 @@
+package com.stock.manager.StockManager.service;
+
+import com.stock.manager.StockManager.models.Product;
+import com.stock.manager.StockManager.repository.SaleDelta;
+import com.stock.manager.StockManager.repository.StockUpsert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The write-behind persistence of the stocks, which is only created when the app runs with
+ * {@code stock.persistence.mode=write-behind}. The latest stock of every product is kept in
+ * the memory and it's the authoritative state the updates are decided against, so a stock
+ * update is acknowledged without waiting for the database.
+ * <p>
+ * The stored stocks are marked dirty and a single background flusher writes them to the
+ * database in JDBC batches, either on a fixed interval or as soon as enough products are
+ * dirty. The updates of a product arriving between two flushes are coalesced, only the latest
+ * stock of the product is written. The sales of the updates can't be derived from the coalesced
+ * stocks, so they are queued on their own and added to the sales rollups by every flush.
+ * <p>
+ * Be mindful that the stocks which are not flushed yet are lost if the JVM is killed, they
+ * are only flushed on a clean shutdown.
+ */
+@Service
+@ConditionalOnProperty(name = "stock.persistence.mode", havingValue = "write-behind")
+public class WriteBehindProductStore {
+
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindProductStore.class);
+
+    private ProductService service;
+
+    /**
+     * the period between two flushes
+     */
+    @Value("${stock.write-behind.flush-interval-ms:100}")
+    long flushIntervalMillis = 100;
+
+    /**
+     * the number of dirty products which triggers a flush before the interval ends, it's also
+     * the max. number of products written in one transaction
+     */
+    @Value("${stock.write-behind.flush-size:500}")
+    int flushSize = 500;
+
+    /**
+     * the latest stock of every product, keyed by the normalized product ID
+     */
+    private final ConcurrentHashMap<String, Product> products = new ConcurrentHashMap<>();
+
+    /**
+     * the normalized IDs of the products which have a row in the database
+     */
+    private final Set<String> persisted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * the products waiting for the flush with the latest stock and the time they became dirty
+     */
+    private final ConcurrentHashMap<String, Pending> dirty = new ConcurrentHashMap<>();
+
+    /**
+     * the sales of the stored stocks which are not added to the sales rollups yet
+     */
+    private final ConcurrentLinkedQueue<SaleDelta> pendingSales = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private ScheduledThreadPoolExecutor flusher;
+
+    private final AtomicLong coalescedUpdates = new AtomicLong();
+    private final AtomicLong flushedProducts = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    private volatile long lastFlushLagMillis;
+    private volatile long maxFlushLagMillis;
+
+
+    private static final class Pending {
+
+        private final Product product;
+
+        /**
+         * the time the oldest update of the product which is not flushed yet arrived
+         */
+        private final long dirtySince;
+
+        private Pending(Product product, long dirtySince) {
+            this.product = product;
+            this.dirtySince = dirtySince;
+        }
+    }
+
+
+    @Autowired
+    public void setService(ProductService service) {
+        this.service = service;
+    }
+
+
+    /**
+     * load the latest stock of all the products from the storage and start the flusher
+     */
+    @PostConstruct
+    public void start() {
+
+        for (Product product : service.findAll()) {
+
+            String key = normalize(product.getProductId());
+
+            products.put(key, product);
+            persisted.add(key);
+        }
+
+        /*
+         * a flush requested while the store is stopping is discarded, the stop flushes all
+         * the dirty products itself once the flusher is terminated
+         * */
+        flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+
+            Thread t = new Thread(runnable, "stock-write-behind");
+            t.setDaemon(true);
+
+            return t;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * stop the flusher and write all the dirty products before the app is terminated
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+
+        flush();
+
+        if (!dirty.isEmpty()) {
+            LOGGER.error("{} stock updates could not be written to the database on shutdown", dirty.size());
+        }
+    }
+
+
+    /**
+     * find the latest stock of the product
+     *
+     * @param productId
+     * @return
+     */
+    public Optional<Product> findById(String productId) {
+        return Optional.ofNullable(products.get(normalize(productId)));
+    }
+
+
+    /**
+     * store the stock in the memory if it's as new or newer than the latest one, and schedule
+     * it for the flush. The callers have to serialize the updates of the same product.
+     *
+     * @param product
+     * @return the outcome and the previous quantity of the product
+     */
+    public StockUpsert saveIfNewer(Product product) {
+
+        String key = normalize(product.getProductId());
+        Product previous = products.get(key);
+
+        if (previous != null && product.getTimestamp().compareTo(previous.getTimestamp()) < 0) {
+            return StockUpsert.outdated(previous.getQuantity());
+        }
+
+        products.put(key, product);
+
+        /*
+         * the product keeps the time it became dirty until its latest stock is flushed
+         * */
+        dirty.compute(key, (k, older) -> {
+
+            if (older == null) {
+                return new Pending(product, System.nanoTime());
+            }
+
+            coalescedUpdates.incrementAndGet();
+            return new Pending(product, older.dirtySince);
+        });
+
+        if (dirty.size() >= flushSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+
+        StockUpsert upsert = previous == null ? StockUpsert.inserted() : StockUpsert.updated(previous.getQuantity());
+        int itemsSold = upsert.getItemsSold(product.getQuantity());
+
+        if (itemsSold > 0) {
+            pendingSales.add(new SaleDelta(product.getProductId(), product.getTimestamp().getTime(), itemsSold));
+        }
+
+        return upsert;
+    }
+
+
+    private void flushQuietly() {
+
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("the write-behind flush failed", e);
+        }
+    }
+
+
+    /**
+     * write the dirty products to the database in the batches of the flush size. It only runs
+     * on the flusher thread, or on the thread which stops the store after the flusher.
+     */
+    void flush() {
+
+        flushRequested.set(false);
+
+        List<String> keys = new ArrayList<>(dirty.keySet());
+
+        for (int from = 0; from < keys.size(); from += flushSize) {
+
+            List<String> batch = keys.subList(from, Math.min(from + flushSize, keys.size()));
+
+            List<String> keysOfBatch = new ArrayList<>(batch.size());
+            List<Pending> pendings = new ArrayList<>(batch.size());
+
+            for (String key : batch) {
+
+                Pending pending = dirty.remove(key);
+
+                if (pending != null) {
+                    keysOfBatch.add(key);
+                    pendings.add(pending);
+                }
+            }
+
+            if (!pendings.isEmpty()) {
+                write(keysOfBatch, pendings);
+            }
+        }
+
+        writeSales();
+    }
+
+
+    /**
+     * add the queued sales to the rollups in one transaction, they are queued again for the
+     * next flush if it fails
+     */
+    private void writeSales() {
+
+        List<SaleDelta> sales = new ArrayList<>();
+
+        for (SaleDelta sale; (sale = pendingSales.poll()) != null; ) {
+            sales.add(sale);
+        }
+
+        if (sales.isEmpty()) {
+            return;
+        }
+
+        try {
+            service.saveSales(sales);
+        } catch (RuntimeException e) {
+
+            pendingSales.addAll(sales);
+            LOGGER.warn("{} sales are kept for the next flush", sales.size(), e);
+        }
+    }
+
+
+    private void write(List<String> keys, List<Pending> pendings) {
+
+        List<Product> inserts = new ArrayList<>();
+        List<Product> updates = new ArrayList<>();
+
+        long oldest = Long.MAX_VALUE;
+        int stored = pendings.size();
+
+        for (int i = 0; i < pendings.size(); i++) {
+
+            Pending pending = pendings.get(i);
+
+            if (persisted.contains(keys.get(i))) {
+                updates.add(pending.product);
+            } else {
+                inserts.add(pending.product);
+            }
+
+            oldest = Math.min(oldest, pending.dirtySince);
+        }
+
+        try {
+            service.saveAll(inserts, updates);
+            persisted.addAll(keys);
+
+        } catch (RuntimeException e) {
+
+            failedFlushes.incrementAndGet();
+
+            /*
+             * the batch is rolled back as a whole, so we write the products one by one
+             * with the conditional upsert which doesn't care whether the row exists
+             * */
+            for (int i = 0; i < pendings.size(); i++) {
+
+                Pending pending = pendings.get(i);
+
+                try {
+                    /*
+                     * the sales of the product are in the queue, the stored stock
+                     * could be older than the previous one we had in the memory
+                     * */
+                    service.saveIfNewer(pending.product, false);
+                    persisted.add(keys.get(i));
+
+                } catch (RuntimeException single) {
+
+                    stored--;
+
+                    /*
+                     * a newer stock of the product could be dirty already, and it wins
+                     * */
+                    dirty.putIfAbsent(keys.get(i), pending);
+                    LOGGER.warn("the stock of {} is kept for the next flush", pending.product.getProductId(), single);
+                }
+            }
+        }
+
+        long lag = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+
+        lastFlushLagMillis = lag;
+        maxFlushLagMillis = Math.max(maxFlushLagMillis, lag);
+
+        flushedProducts.addAndGet(stored);
+        flushes.incrementAndGet();
+    }
+
+
+    /**
+     * @return the number of products waiting to be written to the database
+     */
+    public int getQueueDepth() {
+        return dirty.size();
+    }
+
+    /**
+     * @return the time the oldest update of the last flushed batch waited for the database
+     */
+    public long getLastFlushLagMillis() {
+        return lastFlushLagMillis;
+    }
+
+    /**
+     * @return the longest time an update waited for the database since the app started
+     */
+    public long getMaxFlushLagMillis() {
+        return maxFlushLagMillis;
+    }
+
+    /**
+     * @return the number of updates which were replaced by a newer update of the same product
+     * before they were written
+     */
+    public long getCoalescedUpdates() {
+        return coalescedUpdates.get();
+    }
+
+    public long getFlushedProducts() {
+        return flushedProducts.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes.get();
+    }
+
+
+    private static String normalize(String productId) {
+        return productId.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,258 @@
+package com.stock.manager.StockManager.util;
+
+import com.stock.manager.StockManager.models.Product;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The index of the latest stock of every product, grouped by the day of the stock
+ * timestamp and ordered by the quantity (the largest first) inside the day. It's
+ * updated on every accepted stock update, so the top available products of a range
+ * of days are read from the heads of the days instead of scanning the product table.
+ * <p>
+ * The entries only keep the dictionary IDs of the product and the stock next to the numbers,
+ * the products are built back from the dictionaries for the results we return.
+ */
+public class AvailabilityIndex {
+
+
+    /**
+     * the latest stock of a product. The entries are ordered by the quantity in the
+     * descending order and the product ID breaks the ties, so there is exactly one
+     * entry per product in the index.
+     */
+    private static final class Entry {
+
+        private final int id;
+        private final int stockId;
+        private final long epochDay;
+        private final int quantity;
+        private final long timestampMillis;
+
+        private Entry(int id, int stockId, Product product) {
+
+            this.id = id;
+            this.stockId = stockId;
+            this.timestampMillis = product.getTimestamp().getTime();
+            this.epochDay = Math.floorDiv(timestampMillis, 24 * 60 * 60 * 1000L);
+            this.quantity = product.getQuantity();
+        }
+    }
+
+    private static final Comparator<Entry> BY_QUANTITY_DESCENDING =
+            Comparator.comparingInt((Entry e) -> e.quantity).reversed().thenComparingInt(e -> e.id);
+
+    private final ConcurrentSkipListMap<Long, ConcurrentSkipListSet<Entry>> days = new ConcurrentSkipListMap<>();
+
+    private final StringDictionary productIds;
+    private final StringDictionary stockIds = new StringDictionary();
+
+    /**
+     * the entry of every product by its dictionary ID
+     */
+    private final DenseIdTable<Entry> latest;
+
+    /**
+     * the writers of the same product are serialized by the stripe of its ID
+     */
+    private final StripedLock writeLocks = new StripedLock(64);
+
+
+    public AvailabilityIndex() {
+        this(StringDictionary.caseInsensitive());
+    }
+
+
+    /**
+     * @param productIds the case-insensitive dictionary of the product IDs, shared with the
+     *                   other indexes of the products
+     */
+    public AvailabilityIndex(StringDictionary productIds) {
+
+        this.productIds = productIds;
+        this.latest = new DenseIdTable<>(1024);
+    }
+
+
+    /**
+     * the day returned by the {@link #update(Product)} when no stock is replaced
+     */
+    public static final long NO_DAY = Long.MIN_VALUE;
+
+
+    /**
+     * move the product to the position of its new stock. The update is ignored if
+     * the index already holds a newer stock for the product.
+     *
+     * @param product
+     * @return the epoch day of the stock which is replaced, or {@link #NO_DAY} if the product
+     * is new or the update is ignored
+     */
+    public long update(Product product) {
+
+        if (product == null || product.getProductId() == null || product.getTimestamp() == null) {
+            return NO_DAY;
+        }
+
+        return update(productIds.idOf(product.getProductId()), product);
+    }
+
+
+    /**
+     * move the product of the dictionary ID to the position of its new stock
+     *
+     * @param id      the ID of the product in the dictionary of the index
+     * @param product
+     * @return the epoch day of the stock which is replaced, or {@link #NO_DAY}
+     */
+    public long update(int id, Product product) {
+
+        if (product == null || product.getTimestamp() == null) {
+            return NO_DAY;
+        }
+
+        int stripe = writeLocks.stripeFor(id);
+        writeLocks.lock(stripe);
+
+        try {
+
+            Entry previous = latest.get(id);
+
+            if (previous != null && previous.timestampMillis > product.getTimestamp().getTime()) {
+                return NO_DAY;
+            }
+
+            Entry entry = new Entry(id, product.getId() == null ? -1 : stockIds.idOf(product.getId()), product);
+
+            if (previous != null) {
+                days.get(previous.epochDay).remove(previous);
+            }
+
+            days.computeIfAbsent(entry.epochDay, d -> new ConcurrentSkipListSet<>(BY_QUANTITY_DESCENDING)).add(entry);
+            latest.put(id, entry);
+
+            return previous == null ? NO_DAY : previous.epochDay;
+        } finally {
+            writeLocks.unlock(stripe);
+        }
+    }
+
+
+    /**
+     * find the "k" products with the largest quantity whose latest stock is between the
+     * epoch days (both inclusive). We only read up to "k" entries from the head of each
+     * day and stop reading a day as soon as its quantity can't make it to the top.
+     *
+     * @param fromEpochDay
+     * @param toEpochDay
+     * @param k
+     * @return the products, the largest quantity first
+     */
+    public List<Product> topAvailable(long fromEpochDay, long toEpochDay, int k) {
+
+        List<Product> result = new ArrayList<>();
+
+        if (k <= 0 || fromEpochDay > toEpochDay) {
+            return result;
+        }
+
+        /*
+         * the root of the heap is the smallest of the top "k" entries so far
+         * */
+        PriorityQueue<Entry> top = new PriorityQueue<>(k, BY_QUANTITY_DESCENDING.reversed());
+
+        for (ConcurrentSkipListSet<Entry> day : days.subMap(fromEpochDay, true, toEpochDay, true).values()) {
+
+            int taken = 0;
+
+            for (Entry entry : day) {
+
+                if (taken++ == k) {
+                    break;
+                }
+
+                if (top.size() < k) {
+                    top.add(entry);
+                } else if (BY_QUANTITY_DESCENDING.compare(entry, top.peek()) < 0) {
+                    top.poll();
+                    top.add(entry);
+                } else {
+                    break;
+                }
+            }
+        }
+
+        while (!top.isEmpty()) {
+            result.add(0, toProduct(top.poll()));
+        }
+
+        return result;
+    }
+
+
+    /**
+     * remove all the products from the index and add the provided ones
+     *
+     * @param products the latest stock of the products, usually all from the storage
+     */
+    public void rebuild(Iterable<Product> products) {
+
+        clear();
+
+        for (Product product : products) {
+            update(product);
+        }
+    }
+
+
+    /**
+     * the latest stock of every product in the index, built for this call.
+     *
+     * @return
+     */
+    public List<Product> products() {
+
+        List<Product> products = new ArrayList<>(latest.size());
+
+        for (Entry entry : latest.values()) {
+            products.add(toProduct(entry));
+        }
+
+        return products;
+    }
+
+
+    /**
+     * build the product of the entry back from the dictionaries
+     */
+    private Product toProduct(Entry entry) {
+
+        return new Product(productIds.valueOf(entry.id), null,
+                entry.stockId < 0 ? null : stockIds.valueOf(entry.stockId),
+                new Timestamp(entry.timestampMillis), entry.quantity);
+    }
+
+
+    public void clear() {
+        latest.clear();
+        days.clear();
+    }
+
+
+    /**
+     * find the number of products in the index
+     *
+     * @return
+     */
+    public int size() {
+        return latest.size();
+    }
+}
@@ -0,0 +1,107 @@
+package com.stock.manager.StockManager.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The single scheduler which runs the periodic maintenance of all the caches. The caches
+ * are only weakly referenced by their tasks, so a cache nobody uses anymore is collected
+ * by the GC and its task cancels itself on the next run. The scheduler can be stopped with
+ * {@link #shutdown()} and is started again by the next cache which needs it.
+ */
+public final class CacheMaintenance {
+
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheMaintenance.class);
+
+    private static ScheduledThreadPoolExecutor scheduler;
+
+
+    private CacheMaintenance() {
+    }
+
+
+    /**
+     * run the maintenance of the owner periodically on the shared scheduler
+     *
+     * @param owner           the cache to maintain, it's only weakly referenced
+     * @param maintenance     the maintenance task, it must not capture the owner itself
+     * @param intervalSeconds the period between two runs of the maintenance
+     */
+    public static synchronized <T> void schedule(T owner, Consumer<? super T> maintenance, long intervalSeconds) {
+
+        if (scheduler == null || scheduler.isShutdown()) {
+
+            scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+
+                Thread t = new Thread(runnable, "cache-maintenance");
+
+                /*
+                 * the scheduler must not keep the JVM alive after the app is terminated
+                 * */
+                t.setDaemon(true);
+                return t;
+            });
+
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+
+        MaintenanceTask<T> task = new MaintenanceTask<>(owner, maintenance);
+        task.future = scheduler.scheduleWithFixedDelay(task, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * stop the scheduler and cancel the maintenance of all the caches
+     */
+    public static synchronized void shutdown() {
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+
+    private static final class MaintenanceTask<T> implements Runnable {
+
+        private final WeakReference<T> owner;
+        private final Consumer<? super T> maintenance;
+
+        private volatile ScheduledFuture<?> future;
+
+        private MaintenanceTask(T owner, Consumer<? super T> maintenance) {
+            this.owner = new WeakReference<>(owner);
+            this.maintenance = maintenance;
+        }
+
+        @Override
+        public void run() {
+
+            T o = owner.get();
+
+            if (o == null) {
+                future.cancel(false);
+                return;
+            }
+
+            /*
+             * an exception would silently cancel the periodic task, so, we
+             * keep the schedule alive and try again on the next run
+             * */
+            try {
+                maintenance.accept(o);
+            } catch (RuntimeException e) {
+                LOGGER.error("the maintenance of the cache failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.stock.manager.StockManager.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * A cache with the same API as the {@link MemoryCache}, but the items are spread over
+ * a power of two number of segments by the hash of their keys. Every segment is a
+ * {@link MemoryCache} itself with its own lock, recency order and eviction policy, so
+ * the requests for the different products rarely wait for each other and there is no
+ * monitor shared by all the callers.
+ * <p>
+ * Be mindful that the eviction is decided per segment, hence, the least recently used
+ * item of the segment leaves the cache and not necessarily the globally least recently
+ * used one.
+ */
+public class ConcurrentMemoryCache<K, V> {
+
+
+    private final MemoryCache<K, V>[] segments;
+    private final int segmentMask;
+
+    /**
+     * the number and the total time of the cleanups of all the segments
+     */
+    private final AtomicLong cleanupCount = new AtomicLong();
+    private final AtomicLong cleanupNanos = new AtomicLong();
+
+
+    /**
+     * create a cache with the LRU eviction policy and the segments sized for the
+     * available processors
+     *
+     * @see #ConcurrentMemoryCache(long, long, int, EvictionPolicy, int)
+     */
+    public ConcurrentMemoryCache(long timeToLive, final long timerInterval, int maxItems) {
+        this(timeToLive, timerInterval, maxItems, EvictionPolicy.LRU, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+
+    /**
+     * @param timeToLive       this is the permitted period of time for an object to live since
+     *                         they are last accessed.
+     *
+     *                         <p>
+     * @param timerInterval    the frequency for the time interval to impose the cleanup policy
+     *                         over all the segments on the shared scheduler.
+     *
+     *                         <p>
+     * @param maxItems         the max. items of the whole cache which are divided over the
+     *                         segments, the first segments hold the remainder.
+     *
+     *                         <p>
+     * @param policy           the eviction policy every segment follows once it's full.
+     *
+     *                         <p>
+     * @param concurrencyLevel the estimated number of threads accessing the cache at the same
+     *                         time, rounded up to a power of two for the segment count. We never
+     *                         create more segments than the max. items.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentMemoryCache(long timeToLive, final long timerInterval, int maxItems,
+                                 EvictionPolicy policy, int concurrencyLevel) {
+
+        int segmentCount = 1;
+
+        while (segmentCount < concurrencyLevel && segmentCount * 2 <= maxItems) {
+            segmentCount <<= 1;
+        }
+
+        int segmentSize = maxItems / segmentCount;
+        int remainder = maxItems % segmentCount;
+
+        segments = (MemoryCache<K, V>[]) new MemoryCache<?, ?>[segmentCount];
+        segmentMask = segmentCount - 1;
+
+        /*
+         * the segments are not scheduled for the cleanup on their own, one
+         * task cleans all of them one after another
+         * */
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new MemoryCache<>(timeToLive, 0, i < remainder ? segmentSize + 1 : segmentSize, policy);
+        }
+
+        if (timeToLive > 0 && timerInterval > 0) {
+            CacheMaintenance.schedule(this, ConcurrentMemoryCache::cleanup, timerInterval);
+        }
+    }
+
+
+    /**
+     * the hash codes of the keys are spread so that the upper bits
+     * participate in the selection of the segment
+     *
+     * @param key
+     * @return
+     */
+    private MemoryCache<K, V> segmentFor(Object key) {
+
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        h ^= (h >>> 16);
+
+        return segments[h & segmentMask];
+    }
+
+
+    /**
+     * insert a new key and value inside the segment of the key
+     *
+     * @param key
+     * @param value
+     */
+    public void put(K key, V value) {
+
+        if (key == null) {
+            return;
+        }
+
+        segmentFor(key).put(key, value);
+    }
+
+
+    /**
+     * insert the key and value inside the segment of the key, only if the key is not
+     * cached yet
+     *
+     * @param key
+     * @param value
+     * @return the value already cached for the key, or null if the value is inserted
+     */
+    public V putIfAbsent(K key, V value) {
+
+        if (key == null) {
+            return null;
+        }
+
+        return segmentFor(key).putIfAbsent(key, value);
+    }
+
+
+    /**
+     * retrieve the cache object from the segment of the key
+     *
+     * @param key
+     * @return
+     */
+    public V get(K key) {
+
+        if (key == null) {
+            return null;
+        }
+
+        return segmentFor(key).get(key);
+    }
+
+
+    /**
+     * remove a cache object from the segment of the key
+     *
+     * @param key
+     */
+    public void remove(K key) {
+
+        if (key == null) {
+            return;
+        }
+
+        segmentFor(key).remove(key);
+    }
+
+
+    /**
+     * remove all the objects from the cache, one segment after another
+     */
+    public void clear() {
+
+        for (MemoryCache<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+
+    /**
+     * find the size of the memory cache. The segments are counted one after
+     * another, so, the result is only an estimation while the writers are busy.
+     *
+     * @return size of the cache
+     */
+    public int size() {
+
+        int size = 0;
+
+        for (MemoryCache<K, V> segment : segments) {
+            size += segment.size();
+        }
+
+        return size;
+    }
+
+
+    /**
+     * clean the expired objects from each segment, only one segment
+     * is locked at a time.
+     */
+    public void cleanup() {
+
+        long start = System.nanoTime();
+
+        for (MemoryCache<K, V> segment : segments) {
+            segment.cleanup();
+        }
+
+        cleanupNanos.addAndGet(System.nanoTime() - start);
+        cleanupCount.incrementAndGet();
+    }
+
+
+    /**
+     * convert the cache full of items to regular HashMap with the same
+     * key and value pair. Every segment is copied consistently, but the
+     * segments are copied one after another.
+     *
+     * @return
+     */
+    public Map<K, V> convertToMap() {
+
+        Map<K, V> convertedMap = new HashMap<>();
+
+        for (MemoryCache<K, V> segment : segments) {
+            convertedMap.putAll(segment.convertToMap());
+        }
+
+        return convertedMap;
+    }
+
+
+    /**
+     * @return the number of the segments the items are spread over
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    public EvictionPolicy getPolicy() {
+        return segments[0].getPolicy();
+    }
+
+    public long getHitCount() {
+
+        long count = 0;
+
+        for (MemoryCache<K, V> segment : segments) {
+            count += segment.getHitCount();
+        }
+
+        return count;
+    }
+
+    public long getMissCount() {
+
+        long count = 0;
+
+        for (MemoryCache<K, V> segment : segments) {
+            count += segment.getMissCount();
+        }
+
+        return count;
+    }
+
+    public long getEvictionCount() {
+
+        long count = 0;
+
+        for (MemoryCache<K, V> segment : segments) {
+            count += segment.getEvictionCount();
+        }
+
+        return count;
+    }
+
+    public long getRejectionCount() {
+
+        long count = 0;
+
+        for (MemoryCache<K, V> segment : segments) {
+            count += segment.getRejectionCount();
+        }
+
+        return count;
+    }
+
+    public long getExpirationCount() {
+
+        long count = 0;
+
+        for (MemoryCache<K, V> segment : segments) {
+            count += segment.getExpirationCount();
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the number of times a thread had to wait for the lock of a segment
+     */
+    public long getContentionCount() {
+
+        long count = 0;
+
+        for (MemoryCache<K, V> segment : segments) {
+            count += segment.getContentionCount();
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the total time in nanos the threads waited for the locks of the segments
+     */
+    public long getLockWaitNanos() {
+
+        long nanos = 0;
+
+        for (MemoryCache<K, V> segment : segments) {
+            nanos += segment.getLockWaitNanos();
+        }
+
+        return nanos;
+    }
+
+    /**
+     * @return the number of the cleanups of all the segments
+     */
+    public long getCleanupCount() {
+        return cleanupCount.get();
+    }
+
+    /**
+     * @return the total time in nanos of the cleanups of all the segments
+     */
+    public long getCleanupNanos() {
+        return cleanupNanos.get();
+    }
+
+    public double getHitRate() {
+
+        long hits = getHitCount();
+        long requests = hits + getMissCount();
+
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,246 @@
+package com.stock.manager.StockManager.util;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * A table of the values keyed by the dense int IDs of a {@link StringDictionary}. The value
+ * of an ID is a single array slot, so a lookup is an index into the array instead of hashing
+ * the string key. The reads never lock, while the writes take a lock which is only held to
+ * fill a slot or to grow the array.
+ *
+ * @param <V>
+ */
+public class DenseIdTable<V> {
+
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile AtomicReferenceArray<V> slots;
+    private volatile int size;
+
+
+    /**
+     * @param expectedIds the number of IDs we expect, used to pre-size the array
+     */
+    public DenseIdTable(int expectedIds) {
+        this.slots = new AtomicReferenceArray<>(Math.max(16, expectedIds));
+    }
+
+
+    /**
+     * @param id
+     * @return the value of the ID, or null if there is none
+     */
+    public V get(int id) {
+
+        AtomicReferenceArray<V> current = slots;
+        return id < 0 || id >= current.length() ? null : current.get(id);
+    }
+
+
+    /**
+     * find the value of the ID, or create and store it if the ID has no value yet
+     *
+     * @param id
+     * @param factory
+     * @return
+     */
+    public V computeIfAbsent(int id, IntFunction<V> factory) {
+
+        V value = get(id);
+
+        if (value != null) {
+            return value;
+        }
+
+        lock.lock();
+
+        try {
+
+            value = get(id);
+
+            if (value == null) {
+                value = factory.apply(id);
+                store(id, value);
+            }
+
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * replace the value of the ID
+     *
+     * @param id
+     * @param value
+     */
+    public void put(int id, V value) {
+
+        lock.lock();
+
+        try {
+            store(id, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @param id
+     * @return the value removed, or null if the ID had no value
+     */
+    public V remove(int id) {
+
+        lock.lock();
+
+        try {
+
+            V value = get(id);
+
+            if (value != null) {
+                store(id, null);
+            }
+
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    public void clear() {
+
+        lock.lock();
+
+        try {
+            slots = new AtomicReferenceArray<>(slots.length());
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * find the number of IDs with a value
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * a read-only and weakly consistent view over the values in the order of the IDs. It
+     * doesn't copy the table, so the readers can iterate it while the writers keep updating.
+     *
+     * @return
+     */
+    public Collection<V> values() {
+
+        return new AbstractCollection<>() {
+
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator(slots);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+
+    /**
+     * store the value while we hold the lock, the array is grown to twice the size or to fit
+     * the ID. The slots are copied before the bigger array is published, so the readers
+     * either see the old array or the complete new one.
+     */
+    private void store(int id, V value) {
+
+        if (id < 0) {
+            throw new IndexOutOfBoundsException("negative ID " + id);
+        }
+
+        AtomicReferenceArray<V> current = slots;
+
+        if (id >= current.length()) {
+
+            AtomicReferenceArray<V> grown = new AtomicReferenceArray<>(Math.max(id + 1, current.length() * 2));
+
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+
+            slots = grown;
+            current = grown;
+        }
+
+        V previous = current.getAndSet(id, value);
+
+        if (previous == null && value != null) {
+            size++;
+        } else if (previous != null && value == null) {
+            size--;
+        }
+    }
+
+
+    /**
+     * walks the slots of the array the iteration started with, skipping the empty ones
+     */
+    private final class ValueIterator implements Iterator<V> {
+
+        private final AtomicReferenceArray<V> array;
+
+        private int index;
+        private V next;
+
+        private ValueIterator(AtomicReferenceArray<V> array) {
+            this.array = array;
+            advance();
+        }
+
+        private void advance() {
+
+            next = null;
+
+            while (next == null && index < array.length()) {
+                next = array.get(index++);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public V next() {
+
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+
+            V value = next;
+            advance();
+
+            return value;
+        }
+    }
+}
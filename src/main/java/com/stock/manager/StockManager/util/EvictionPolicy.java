@@ -0,0 +1,26 @@
+package com.stock.manager.StockManager.util;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The policy a {@link MemoryCache} follows to make room for a new item once it
+ * has reached the max. number of items.
+ */
+public enum EvictionPolicy {
+
+
+    /**
+     * evict the least recently used item to admit the new one.
+     */
+    LRU,
+
+    /**
+     * new items enter a small LRU window (1% of the capacity). When the window
+     * overflows, its least recently used item competes with the least recently
+     * used item of the main space and the one that was accessed more often
+     * according to a {@link FrequencySketch} stays in the cache. This keeps
+     * the hot items resident while a burst of the one-off items passes through
+     * the window only.
+     */
+    W_TINY_LFU
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Modified by Chaklader on 2026-10-18: reduced to the sketch of a single cache segment
+ * which is guarded by the lock of its owner.
+ */
+package com.stock.manager.StockManager.util;
+
+/**
+ * Derived from the FrequencySketch of Caffeine (https://github.com/ben-manes/caffeine).
+ * <p>
+ * A Count-Min sketch with 4-bit counters that estimates how often a key was seen
+ * recently. Each long of the table holds 16 counters and a key maps to 4 of them
+ * spread over 4 rows, so an increment or a lookup touches at most 4 longs. Once the
+ * number of increments reaches the sample size, every counter is halved so that the
+ * popularity of the keys decays with time.
+ * <p>
+ * The sketch is not thread-safe, the owner is expected to guard it with its own lock.
+ */
+public class FrequencySketch {
+
+
+    private static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+
+    private int size;
+
+
+    /**
+     * @param maximumSize the maximum number of keys the owner keeps, the width of the
+     *                    sketch and the length of the aging period are derived from it.
+     */
+    public FrequencySketch(int maximumSize) {
+
+        int maximum = Math.max(1, maximumSize);
+
+        this.table = new long[ceilingPowerOfTwo(maximum)];
+        this.tableMask = table.length - 1;
+        this.sampleSize = (maximum > Integer.MAX_VALUE / 10) ? Integer.MAX_VALUE : 10 * maximum;
+    }
+
+
+    /**
+     * find the estimated number of occurrences of the key, capped at 15
+     *
+     * @param key
+     * @return
+     */
+    public int frequency(Object key) {
+
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+
+        int frequency = Integer.MAX_VALUE;
+
+        for (int i = 0; i < 4; i++) {
+
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+
+    /**
+     * record an occurrence of the key and age all the counters once the sample
+     * size is reached
+     *
+     * @param key
+     */
+    public void increment(Object key) {
+
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+
+        boolean added = incrementAt(indexOf(hash, 0), start)
+                | incrementAt(indexOf(hash, 1), start + 1)
+                | incrementAt(indexOf(hash, 2), start + 2)
+                | incrementAt(indexOf(hash, 3), start + 3);
+
+        if (added && (++size == sampleSize)) {
+            reset();
+        }
+    }
+
+
+    private boolean incrementAt(int i, int j) {
+
+        int offset = j << 2;
+        long mask = (0xfL << offset);
+
+        /*
+         * the counter saturates at 15
+         * */
+        if ((table[i] & mask) != mask) {
+            table[i] += (1L << offset);
+            return true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * halve every counter, the odd counters lose their remainder which
+     * we account for while reducing the size.
+     */
+    private void reset() {
+
+        int count = 0;
+
+        for (int i = 0; i < table.length; i++) {
+            count += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+
+        size = (size >>> 1) - (count >>> 2);
+    }
+
+
+    private int indexOf(int item, int i) {
+
+        long hash = (item + SEED[i]) * SEED[i];
+        hash += (hash >>> 32);
+
+        return ((int) hash) & tableMask;
+    }
+
+
+    private static int spread(int x) {
+
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+
+        return (x >>> 16) ^ x;
+    }
+
+
+    private static int ceilingPowerOfTwo(int x) {
+        return (x <= 1) ? 1 : Integer.highestOneBit(Math.min(x - 1, 1 << 29)) << 1;
+    }
+}
@@ -0,0 +1,417 @@
+package com.stock.manager.StockManager.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The approximate top selling products in a bounded memory, for the catalogs which are too
+ * large to keep the exact {@link SalesLedger}. Every day of the last {@value SalesLedger#DAYS}
+ * days has its own window with a Count-Min sketch of the items sold per product and a
+ * Space-Saving summary of the "capacity" products with the most items sold. The memory is
+ * fixed by the width, the depth and the capacity, and it doesn't depend on the catalog.
+ * <p>
+ * The error bounds of a range of days with N items sold in total, where e is Euler's number:
+ * <ul>
+ * <li>the items sold of a product are never under-estimated,</li>
+ * <li>they are over-estimated by at most e / width * N with the probability of at least
+ * 1 - e^-depth,</li>
+ * <li>every product with more than N / capacity items sold is in the result candidates, as
+ * it must have sold more than 1 / capacity of the items of at least one of the days.</li>
+ * </ul>
+ * The ranking of the products whose items sold are closer than the error can be swapped.
+ */
+public class HeavyHitters {
+
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    private final Window[] windows;
+
+    private final int capacity;
+    private final int width;
+    private final int depth;
+
+
+    /**
+     * the sales of a single day. The Space-Saving summary is a min-heap on the counts, so the
+     * product with the fewest items sold is replaced by a product which is not monitored yet.
+     * <p>
+     * A window is guarded by its own monitor, the writers of the different days never wait
+     * for each other.
+     */
+    private final class Window {
+
+        private long epochDay = Long.MIN_VALUE;
+        private long total;
+
+        private final long[] counters = new long[depth * width];
+
+        private final HashMap<String, Integer> positions = new HashMap<>();
+        private final String[] keys = new String[capacity];
+        private final String[] productIds = new String[capacity];
+        private final long[] counts = new long[capacity];
+        private int size;
+
+        private void reset(long day) {
+
+            epochDay = day;
+            total = 0;
+
+            Arrays.fill(counters, 0L);
+            Arrays.fill(keys, null);
+            Arrays.fill(productIds, null);
+
+            positions.clear();
+            size = 0;
+        }
+
+        private void add(String key, String productId, long hash, long items) {
+
+            total += items;
+
+            for (int row = 0; row < depth; row++) {
+                counters[indexOf(hash, row)] += items;
+            }
+
+            Integer position = positions.get(key);
+
+            if (position != null) {
+                counts[position] += items;
+                siftDown(position);
+            } else if (size < capacity) {
+                set(size, key, productId, items);
+                siftUp(size++);
+            } else {
+
+                /*
+                 * the new product takes over the count of the replaced one, which is
+                 * the bound of the items it could have sold before
+                 * */
+                positions.remove(keys[0]);
+                set(0, key, productId, counts[0] + items);
+                siftDown(0);
+            }
+        }
+
+        /**
+         * the upper bound of the items sold of the product, the smaller of the sketch and
+         * the summary
+         */
+        private long estimate(String key, long hash) {
+
+            long sketch = Long.MAX_VALUE;
+
+            for (int row = 0; row < depth; row++) {
+                sketch = Math.min(sketch, counters[indexOf(hash, row)]);
+            }
+
+            Integer position = positions.get(key);
+
+            /*
+             * a product which is not monitored sold at most the minimum of a full summary,
+             * and nothing if the summary was never full
+             * */
+            long summary = position != null ? counts[position] : (size < capacity ? 0 : counts[0]);
+
+            return Math.min(sketch, summary);
+        }
+
+        private void set(int i, String key, String productId, long count) {
+
+            keys[i] = key;
+            productIds[i] = productId;
+            counts[i] = count;
+
+            positions.put(key, i);
+        }
+
+        private void siftUp(int i) {
+
+            while (i > 0) {
+
+                int parent = (i - 1) >>> 1;
+
+                if (counts[parent] <= counts[i]) {
+                    break;
+                }
+
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+
+            while (true) {
+
+                int left = 2 * i + 1;
+
+                if (left >= size) {
+                    break;
+                }
+
+                int right = left + 1;
+                int smallest = (right < size && counts[right] < counts[left]) ? right : left;
+
+                if (counts[i] <= counts[smallest]) {
+                    break;
+                }
+
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+
+            String key = keys[i];
+            String productId = productIds[i];
+            long count = counts[i];
+
+            keys[i] = keys[j];
+            productIds[i] = productIds[j];
+            counts[i] = counts[j];
+
+            keys[j] = key;
+            productIds[j] = productId;
+            counts[j] = count;
+
+            positions.put(keys[i], i);
+            positions.put(keys[j], j);
+        }
+    }
+
+
+    /**
+     * @param capacity the number of products the summary of a day monitors
+     * @param width    the counters of a row of the sketch, rounded up to a power of two
+     * @param depth    the rows of the sketch
+     */
+    public HeavyHitters(int capacity, int width, int depth) {
+
+        if (capacity < 1 || width < 1 || depth < 1) {
+            throw new IllegalArgumentException("the capacity, the width and the depth must be positive");
+        }
+
+        int w = 1;
+
+        while (w < width) {
+            w <<= 1;
+        }
+
+        this.capacity = capacity;
+        this.width = w;
+        this.depth = depth;
+
+        this.windows = new Window[SalesLedger.DAYS];
+
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new Window();
+        }
+    }
+
+
+    /**
+     * record the items sold for the product in the window of the day of the sale. A sale
+     * after tomorrow is dropped, it would reset the window of a day we still keep.
+     *
+     * @param productId
+     * @param timestampMillis the timestamp of the stock update that revealed the sale
+     * @param items           the items sold with this stock update
+     */
+    public void record(String productId, long timestampMillis, long items) {
+
+        if (productId == null || items <= 0) {
+            return;
+        }
+
+        String key = productId.toLowerCase(Locale.ROOT);
+        long hash = hash(key);
+
+        long day = Math.floorDiv(timestampMillis, MILLIS_PER_DAY);
+
+        /*
+         * a day of tolerance for the clocks of the clients which are ahead of ours
+         * */
+        if (day > Math.floorDiv(System.currentTimeMillis(), MILLIS_PER_DAY) + 1) {
+            return;
+        }
+
+        Window window = windows[(int) Math.floorMod(day, (long) windows.length)];
+
+        synchronized (window) {
+
+            /*
+             * the window holds an older day which is out of the range by now
+             * */
+            if (window.epochDay < day) {
+                window.reset(day);
+            }
+
+            /*
+             * otherwise, the sale is older than the range of the windows
+             * */
+            if (window.epochDay == day) {
+                window.add(key, productId, hash, items);
+            }
+        }
+    }
+
+
+    /**
+     * find the top "n" selling products between the epoch days (both inclusive). The products
+     * monitored by the summaries of the days are the candidates, and they are ranked by the
+     * sum of their estimates over the days.
+     *
+     * @param n
+     * @param fromEpochDay
+     * @param toEpochDay
+     * @return the estimated items sold keyed by the product ID, the largest first
+     */
+    public Map<String, Long> topSelling(int n, long fromEpochDay, long toEpochDay) {
+
+        List<Window> days = new ArrayList<>();
+
+        for (long day = Math.max(fromEpochDay, toEpochDay - windows.length + 1); day <= toEpochDay; day++) {
+            days.add(windows[(int) Math.floorMod(day, (long) windows.length)]);
+        }
+
+        Map<String, String> candidates = new LinkedHashMap<>();
+
+        for (Window window : days) {
+
+            synchronized (window) {
+
+                if (window.epochDay >= fromEpochDay && window.epochDay <= toEpochDay) {
+                    for (int i = 0; i < window.size; i++) {
+                        candidates.putIfAbsent(window.keys[i], window.productIds[i]);
+                    }
+                }
+            }
+        }
+
+        String[] keys = candidates.keySet().toArray(new String[0]);
+        long[] hashes = new long[keys.length];
+        long[] estimates = new long[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            hashes[i] = hash(keys[i]);
+        }
+
+        for (Window window : days) {
+
+            synchronized (window) {
+
+                if (window.epochDay >= fromEpochDay && window.epochDay <= toEpochDay) {
+                    for (int i = 0; i < keys.length; i++) {
+                        estimates[i] += window.estimate(keys[i], hashes[i]);
+                    }
+                }
+            }
+        }
+
+        long[] itemsSold = new long[Math.max(0, n)];
+        int[] top = SortingHelper.selectTopN(keys.length, i -> estimates[i], n, itemsSold);
+
+        Map<String, Long> result = new LinkedHashMap<>();
+
+        for (int i = 0; i < top.length; i++) {
+
+            if (itemsSold[i] > 0) {
+                result.put(candidates.get(keys[top[i]]), itemsSold[i]);
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * find the items sold between the epoch days (both inclusive) we could over-estimate a
+     * product by, with the probability of {@link #getConfidence()}
+     *
+     * @param fromEpochDay
+     * @param toEpochDay
+     * @return
+     */
+    public long errorBound(long fromEpochDay, long toEpochDay) {
+
+        long total = 0;
+
+        for (Window window : windows) {
+
+            synchronized (window) {
+
+                if (window.epochDay >= fromEpochDay && window.epochDay <= toEpochDay) {
+                    total += window.total;
+                }
+            }
+        }
+
+        return (long) Math.ceil(getErrorRate() * total);
+    }
+
+
+    /**
+     * @return the share of the items sold of a range a product could be over-estimated by
+     */
+    public double getErrorRate() {
+        return Math.E / width;
+    }
+
+    /**
+     * @return the probability of the over-estimate to be in the {@link #getErrorRate()}
+     */
+    public double getConfidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    /**
+     * @return the approximate memory of the sketches and the summaries, the product IDs
+     * they refer to are not counted
+     */
+    public long getMemoryBytes() {
+        return (long) windows.length * ((long) depth * width * Long.BYTES + (long) capacity * 64);
+    }
+
+
+    /**
+     * the row of the sketch picks its counter by the double hashing of the 64-bit hash
+     */
+    private int indexOf(long hash, int row) {
+
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        return row * width + ((h1 + row * h2) & (width - 1));
+    }
+
+
+    /**
+     * the 64-bit FNV-1a hash of the characters, mixed by the finalizer of the MurmurHash3
+     */
+    private static long hash(String key) {
+
+        long h = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+}
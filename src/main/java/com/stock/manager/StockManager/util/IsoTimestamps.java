@@ -0,0 +1,111 @@
+package com.stock.manager.StockManager.util;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * Writes the epoch millis as the ISO-8601 UTC timestamps of {@code yyyy-MM-ddTHH:mm:ss.SSSZ}
+ * into a char buffer, without creating any object on the way. The years outside of
+ * 0000-9999 don't fit into the fixed length, and they are formatted by the {@link #FORMATTER}.
+ */
+public final class IsoTimestamps {
+
+
+    /**
+     * the length of a timestamp written into the buffer
+     */
+    public static final int LENGTH = 24;
+
+    public static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    /**
+     * the epoch millis of 0000-01-01T00:00:00Z and 10000-01-01T00:00:00Z
+     */
+    private static final long MIN_MILLIS = -62_167_219_200_000L;
+    private static final long MAX_MILLIS = 253_402_300_800_000L;
+
+
+    private IsoTimestamps() {
+    }
+
+
+    /**
+     * write the timestamp into the buffer
+     *
+     * @param epochMillis
+     * @param buffer      the buffer with at least {@link #LENGTH} chars from the offset
+     * @param offset
+     * @return the number of chars written, or -1 if the year doesn't fit into 4 digits
+     */
+    public static int format(long epochMillis, char[] buffer, int offset) {
+
+        if (epochMillis < MIN_MILLIS || epochMillis >= MAX_MILLIS) {
+            return -1;
+        }
+
+        long days = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+        /*
+         * the civil date of the days since the epoch, counted in the eras of 400 years
+         * which start on the 1st of March, so the leap day is the last day of the year
+         * */
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        int dayOfEra = (int) (z - era * 146_097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+        int seconds = millisOfDay / 1000;
+
+        digits(buffer, offset, year, 4);
+        buffer[offset + 4] = '-';
+        digits(buffer, offset + 5, month, 2);
+        buffer[offset + 7] = '-';
+        digits(buffer, offset + 8, day, 2);
+        buffer[offset + 10] = 'T';
+        digits(buffer, offset + 11, seconds / 3600, 2);
+        buffer[offset + 13] = ':';
+        digits(buffer, offset + 14, seconds / 60 % 60, 2);
+        buffer[offset + 16] = ':';
+        digits(buffer, offset + 17, seconds % 60, 2);
+        buffer[offset + 19] = '.';
+        digits(buffer, offset + 20, millisOfDay % 1000, 3);
+        buffer[offset + 23] = 'Z';
+
+        return LENGTH;
+    }
+
+
+    /**
+     * @param epochMillis
+     * @return the timestamp as a string, for the callers who need one anyway
+     */
+    public static String toString(long epochMillis) {
+
+        char[] buffer = new char[LENGTH];
+        int length = format(epochMillis, buffer, 0);
+
+        return length < 0 ? FORMATTER.format(Instant.ofEpochMilli(epochMillis)) : new String(buffer, 0, length);
+    }
+
+
+    private static void digits(char[] buffer, int offset, int value, int count) {
+
+        for (int i = offset + count - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package com.stock.manager.StockManager.util;
 
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
-import com.stock.manager.StockManager.models.Product;
-import org.apache.commons.collections.MapIterator;
-import org.apache.commons.collections.map.LRUMap;
+import org.apache.commons.collections4.map.LRUMap;
 
 
 /**
@@ -13,23 +12,85 @@ import org.apache.commons.collections.map.LRUMap;
 public class MemoryCache<K, V> {
 
 
+    /**
+     * the max. number of the expired objects we remove while holding the lock once
+     */
+    static final int CLEANUP_BATCH_SIZE = 256;
+
     private long timeToLive;
-    private LRUMap lruMap;
+
+    private final EvictionPolicy policy;
+
+    /**
+     * guards all the state of the cache. It's not a monitor, so a virtual thread waiting
+     * for it doesn't pin its carrier thread.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * the main space of the cache, ordered from the least to the most recently used item
+     */
+    private LRUMap<K, CacheObject> lruMap;
+
+    /**
+     * the admission window and the frequency sketch are only used with the W-TinyLFU policy
+     */
+    private LRUMap<K, CacheObject> window;
+    private FrequencySketch sketch;
+
+    /**
+     * the objects are scheduled in the wheel by their expiry time, which is the last
+     * access plus the time to live. It's only used if we have a time to live.
+     */
+    private TimerWheel<K> wheel;
+
+    /**
+     * the statistics are only written while holding the lock, and they are volatile so the
+     * metrics read them without waiting for the lock. The size is published when the lock
+     * is released.
+     */
+    private volatile int size;
+
+    private volatile long hitCount;
+    private volatile long missCount;
+    private volatile long evictionCount;
+    private volatile long rejectionCount;
+    private volatile long expirationCount;
+
+    /**
+     * the number of times a thread had to wait for the lock, the total time it waited, and
+     * the number and the total time of the cleanups
+     */
+    private volatile long contentionCount;
+    private volatile long lockWaitNanos;
+    private volatile long cleanupCount;
+    private volatile long cleanupNanos;
 
     /**
      * custom class that stores the cache value and the last access timestamp
      */
-    protected class CacheObject {
+    protected class CacheObject extends TimerWheel.Node<K> {
 
         public long lastAccessed = System.currentTimeMillis();
         public V value;
 
-        protected CacheObject(V value) {
+        protected CacheObject(K key, V value) {
+            super(key);
             this.value = value;
         }
     }
 
 
+    /**
+     * create a cache with the LRU eviction policy
+     *
+     * @see #MemoryCache(long, long, int, EvictionPolicy)
+     */
+    public MemoryCache(long timeToLive, final long timerInterval, int maxItems) {
+        this(timeToLive, timerInterval, maxItems, EvictionPolicy.LRU);
+    }
+
+
     /**
      * @param timeToLive    this is the permitted period of time for an object to live since
      *                      they are last accessed.
@@ -37,117 +98,274 @@ public class MemoryCache<K, V> {
      *                      <p>
      * @param timerInterval the frequency for the time interval to impose the cleanup policy.
      *                      This is necessary te reduce the memory pressure where the memory
-     *                      is critical.
+     *                      is critical. The cleanup runs on the scheduler shared by all the
+     *                      caches, and the expired objects are never returned by the cache
+     *                      even before the cleanup removes them.
      *
      *                      <p>
      * @param maxItems      Cache will keep most recently used items if we will try to add more
      *                      items then max specified.
+     *
+     *                      <p>
+     * @param policy        the policy to decide which item leaves the cache when we add an item
+     *                      to the full cache.
      */
-    public MemoryCache(long timeToLive, final long timerInterval, int maxItems) {
+    public MemoryCache(long timeToLive, final long timerInterval, int maxItems, EvictionPolicy policy) {
 
         this.timeToLive = timeToLive * 1000;
+        this.policy = policy;
 
-        lruMap = new LRUMap(maxItems);
+        if (policy == EvictionPolicy.W_TINY_LFU) {
 
-        if (this.timeToLive > 0 && timerInterval > 0) {
+            int windowSize = Math.max(1, maxItems / 100);
 
-            Thread t = new Thread(new Runnable() {
+            window = new LRUMap<>(windowSize);
+            lruMap = new LRUMap<>(Math.max(1, maxItems - windowSize));
+            sketch = new FrequencySketch(maxItems);
+        } else {
+            lruMap = new LRUMap<>(maxItems);
+        }
 
-                public void run() {
+        if (this.timeToLive > 0) {
 
-                    while (true) {
-                        try {
-                            Thread.sleep(timerInterval * 1000);
-                        } catch (InterruptedException ex) {
-                        }
+            wheel = new TimerWheel<>(System.currentTimeMillis());
 
-                        /*
-                         * clean the objects from the cache that has reached
-                         * the "time to live" period after the last access.
-                         * */
-                        cleanup();
-                    }
+            if (timerInterval > 0) {
+                CacheMaintenance.schedule(this, MemoryCache::cleanup, timerInterval);
+            }
+        }
+    }
+
+
+    /**
+     * insert a new key and value inside the cache memory. If the cache is full, the
+     * eviction policy decides which item makes the room for the new one.
+     *
+     * @param key
+     * @param value
+     */
+    public void put(K key, V value) {
+
+        acquire();
+
+        try {
+
+            if (key == null) {
+                return;
+            }
+
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+
+            /*
+             * the key is already cached, so, we only replace the value and
+             * move it to the most recently used position
+             * */
+            CacheObject o = lruMap.get(key, false);
+
+            if (o != null) {
+                replace(lruMap, o, value);
+                return;
+            }
+
+            if (window == null) {
+
+                /*
+                 * we have reached the max. size of items decided for the cache,
+                 * hence, the least recently used item makes the room for the new one
+                 * */
+                if (lruMap.isFull()) {
+                    deschedule(lruMap.remove(lruMap.firstKey()));
+                    evictionCount++;
                 }
-            });
+
+                lruMap.put(key, newCacheObject(key, value));
+                return;
+            }
+
+            o = window.get(key, false);
+
+            if (o != null) {
+                replace(window, o, value);
+                return;
+            }
 
             /*
-             * The Daemon is a low priority thread which will run in the background to perform the cleaning
-             * process and the GC doesn't need to wait while it's still running to shutdown the system if
-             * the app is terminated.
+             * the new items always enter the window, and the item it pushes out
+             * has to compete for a place in the main space
              * */
-            t.setDaemon(true);
-            t.start();
+            if (window.isFull()) {
+
+                K candidate = window.firstKey();
+                admit(candidate, window.remove(candidate));
+            }
+
+            window.put(key, newCacheObject(key, value));
+        } finally {
+            release();
         }
     }
 
 
     /**
-     * insert a new key and value inside the cache memory
+     * insert the key and value only if the key is not cached yet, or its object is expired.
+     * The lookup doesn't count as an access of the cached object.
      *
      * @param key
      * @param value
+     * @return the value already cached for the key, or null if the value is inserted
      */
-    public void put(K key, V value) {
+    public V putIfAbsent(K key, V value) {
+
+        acquire();
 
-        synchronized (lruMap) {
+        try {
 
             if (key == null) {
-                return;
+                return null;
             }
 
-            /**
-             * we have reached the max. size of items decided for the cache
-             * and hence, we are not allowed to add more items for now. We
-             * will need for the cache cleaning to append further items.
-             */
-            if (lruMap.isFull()) {
-                return;
+            CacheObject o = lruMap.get(key, false);
+
+            if (o == null && window != null) {
+                o = window.get(key, false);
             }
 
-            lruMap.put(key, new CacheObject(value));
+            if (o != null && (wheel == null || System.currentTimeMillis() < o.lastAccessed + timeToLive)) {
+                return o.value;
+            }
+
+            put(key, value);
+            return null;
+        } finally {
+            release();
         }
     }
 
 
+    private CacheObject newCacheObject(K key, V value) {
+
+        CacheObject o = new CacheObject(key, value);
+
+        if (wheel != null) {
+            wheel.schedule(o, o.lastAccessed + timeToLive);
+        }
+
+        return o;
+    }
+
+
+    private void replace(LRUMap<K, CacheObject> map, CacheObject o, V value) {
+
+        o.value = value;
+        touch(o, System.currentTimeMillis());
+
+        map.put(o.getKey(), o);
+    }
+
+
+    /**
+     * record the access of the object and move it to the bucket of its new expiry time
+     */
+    private void touch(CacheObject o, long now) {
+
+        o.lastAccessed = now;
+
+        if (wheel != null) {
+            wheel.schedule(o, now + timeToLive);
+        }
+    }
+
+
+    private void deschedule(TimerWheel.Node<K> o) {
+
+        if (wheel != null && o != null) {
+            wheel.deschedule(o);
+        }
+    }
+
+
+    /**
+     * move the item pushed out from the window to the main space if there is room, or
+     * if it's accessed more frequently than the least recently used item of the main
+     * space. Either way, one of them leaves the cache when the main space is full.
+     *
+     * @param candidate
+     * @param o
+     */
+    private void admit(K candidate, CacheObject o) {
+
+        if (!lruMap.isFull()) {
+            lruMap.put(candidate, o);
+            return;
+        }
+
+        K victim = lruMap.firstKey();
+
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            deschedule(lruMap.remove(victim));
+            lruMap.put(candidate, o);
+        } else {
+            deschedule(o);
+            rejectionCount++;
+        }
+
+        evictionCount++;
+    }
+
+
     /**
      * retrieve the cache object from the memory using the key
      *
      * @param key
      * @return
      */
-    @SuppressWarnings("unchecked")
     public V get(K key) {
 
-        synchronized (lruMap) {
+        acquire();
 
-            MapIterator iterator = lruMap.mapIterator();
+        try {
 
-            K k = null;
-            V v = null;
+            if (key == null) {
+                return null;
+            }
 
-            CacheObject o = null;
+            if (sketch != null) {
+                sketch.increment(key);
+            }
 
-            Product product = (Product) key;
+            CacheObject o = lruMap.get(key);
 
-            while (iterator.hasNext()) {
+            if (o == null && window != null) {
+                o = window.get(key);
+            }
 
-                k = (K) iterator.next();
-                v = (V) iterator.getValue();
+            if (o == null) {
+                missCount++;
+                return null;
+            }
 
-                Product p = (Product) k;
+            long now = System.currentTimeMillis();
 
-                if (p.getProductId().equalsIgnoreCase(product.getProductId())) {
-                    o = (CacheObject) v;
-                    break;
-                }
-            }
+            /*
+             * the object is expired but the cleanup didn't get to it yet
+             * */
+            if (wheel != null && now >= o.lastAccessed + timeToLive) {
+
+                removeObject(o);
+                expirationCount++;
+                missCount++;
 
-            if (o == null) {
                 return null;
-            } else {
-                o.lastAccessed = System.currentTimeMillis();
-                return o.value;
             }
+
+            hitCount++;
+            touch(o, now);
+
+            return o.value;
+        } finally {
+            release();
         }
     }
 
@@ -158,9 +376,69 @@ public class MemoryCache<K, V> {
      */
     public void remove(K key) {
 
-        synchronized (lruMap) {
+        acquire();
+
+        try {
+
+            CacheObject o = lruMap.remove(key);
+
+            if (o == null && window != null) {
+                o = window.remove(key);
+            }
+
+            deschedule(o);
+        } finally {
+            release();
+        }
+    }
+
+
+    /**
+     * remove all the objects from the memory, the statistics are kept
+     */
+    public void clear() {
+
+        acquire();
+
+        try {
+
+            for (CacheObject o : lruMap.values()) {
+                deschedule(o);
+            }
+
+            lruMap.clear();
+
+            if (window != null) {
+
+                for (CacheObject o : window.values()) {
+                    deschedule(o);
+                }
+
+                window.clear();
+            }
+        } finally {
+            release();
+        }
+    }
+
+
+    /**
+     * remove the object only if it's still the one cached for its key
+     */
+    private boolean removeObject(TimerWheel.Node<K> o) {
+
+        K key = o.getKey();
+
+        if (lruMap.get(key, false) == o) {
             lruMap.remove(key);
+        } else if (window != null && window.get(key, false) == o) {
+            window.remove(key);
+        } else {
+            return false;
         }
+
+        deschedule(o);
+        return true;
     }
 
     /**
@@ -169,56 +447,180 @@ public class MemoryCache<K, V> {
      * @return size of the cache
      */
     public int size() {
+        return size;
+    }
+
+
+    /**
+     * @return the policy which decides the item to leave the full cache
+     */
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the number of lookups which found the key in the cache
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups which didn't find the key in the cache
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of items removed to make room for the new items
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the number of items the W-TinyLFU policy didn't admit to the main space
+     * because they were accessed less frequently than the item they would replace
+     */
+    public long getRejectionCount() {
+        return rejectionCount;
+    }
+
+    /**
+     * @return the number of items removed because they reached the time to live
+     */
+    public long getExpirationCount() {
+        return expirationCount;
+    }
+
+    /**
+     * @return the number of times a thread had to wait for the lock of the cache
+     */
+    public long getContentionCount() {
+        return contentionCount;
+    }
+
+    /**
+     * @return the total time in nanos the threads waited for the lock of the cache
+     */
+    public long getLockWaitNanos() {
+        return lockWaitNanos;
+    }
 
-        synchronized (lruMap) {
-            return lruMap.size();
+    /**
+     * @return the number of the cleanups of the expired objects
+     */
+    public long getCleanupCount() {
+        return cleanupCount;
+    }
+
+    /**
+     * @return the total time in nanos of the cleanups, incl. the time they waited for the lock
+     */
+    public long getCleanupNanos() {
+        return cleanupNanos;
+    }
+
+    /**
+     * @return the ratio of the lookups which found the key in the cache, 1.0 if there
+     * was no lookup yet
+     */
+    public double getHitRate() {
+
+        long hits = hitCount;
+        long requests = hits + missCount;
+
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+
+    /**
+     * acquire the lock of the cache and record the time we waited for it. The uncontended
+     * acquisition doesn't read the clock.
+     */
+    private void acquire() {
+
+        if (lock.tryLock()) {
+            return;
         }
+
+        long start = System.nanoTime();
+        lock.lock();
+
+        contentionCount++;
+        lockWaitNanos += System.nanoTime() - start;
     }
 
 
     /**
-     * we will look after the cache objects with a certain time interval
-     * that has stayed in the memory inactively more than the time to live
-     * period and remove them iteratively.
+     * publish the size of the cache and release the lock
+     */
+    private void release() {
+
+        size = lruMap.size() + (window == null ? 0 : window.size());
+        lock.unlock();
+    }
+
+
+    /**
+     * we will advance the timer wheel to the current time, which only visits the buckets
+     * of the objects that has stayed in the memory inactively more than the time to live
+     * period. Then, we remove them in the batches so the lock is never held for long.
      */
-    @SuppressWarnings("unchecked")
     public void cleanup() {
 
+        if (wheel == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
         long now = System.currentTimeMillis();
-        ArrayList<K> deleteList = null;
+        List<TimerWheel.Node<K>> expired = new ArrayList<>();
+
+        acquire();
+
+        try {
+            wheel.advance(now, expired);
+        } finally {
+            release();
+        }
 
-        synchronized (lruMap) {
+        for (int from = 0; from < expired.size(); from += CLEANUP_BATCH_SIZE) {
 
-            MapIterator iterator = lruMap.mapIterator();
+            int to = Math.min(from + CLEANUP_BATCH_SIZE, expired.size());
 
-            deleteList = new ArrayList<K>((lruMap.size() / 2) + 1);
+            acquire();
 
-            K key = null;
-            CacheObject o = null;
+            try {
 
-            while (iterator.hasNext()) {
+                for (int i = from; i < to; i++) {
 
-                key = (K) iterator.next();
-                o = (CacheObject) iterator.getValue();
+                    TimerWheel.Node<K> o = expired.get(i);
 
-                if (o != null && (now > (o.lastAccessed + timeToLive))) {
-                    deleteList.add(key);
+                    /*
+                     * the object was accessed again after the wheel handed it out
+                     * */
+                    if (o.isScheduled()) {
+                        continue;
+                    }
+
+                    if (removeObject(o)) {
+                        expirationCount++;
+                    }
                 }
+            } finally {
+                release();
             }
         }
 
-        for (K key : deleteList) {
-
-            synchronized (lruMap) {
-                lruMap.remove(key);
-            }
+        acquire();
 
-            /*
-             * A yielding thread tells the OS (or the virtual machine etc) it's willing
-             * to let other threads be scheduled in its stead. This indicates it's not
-             * doing something too critical (It's only a hint, though)
-             * */
-            Thread.yield();
+        try {
+            cleanupCount++;
+            cleanupNanos += System.nanoTime() - start;
+        } finally {
+            release();
         }
     }
 
@@ -228,56 +630,28 @@ public class MemoryCache<K, V> {
      *
      * @return
      */
-    public Map<Product, Integer> convertToMap() {
-
-        synchronized (lruMap) {
+    public Map<K, V> convertToMap() {
 
-            Map<Product, Integer> convertedMap = new HashMap<>();
+        acquire();
 
-            MapIterator iterator = lruMap.mapIterator();
+        try {
 
-            K k = null;
-            V v = null;
+            Map<K, V> convertedMap = new HashMap<>(size());
 
-            CacheObject o = null;
-
-            while (iterator.hasNext()) {
-
-                k = (K) iterator.next();
-                v = (V) iterator.getValue();
-
-                Product product = (Product) k;
+            for (Map.Entry<K, CacheObject> entry : lruMap.entrySet()) {
+                convertedMap.put(entry.getKey(), entry.getValue().value);
+            }
 
-                o = (CacheObject) v;
-                int itemsSold = Integer.valueOf((o.value).toString());
+            if (window != null) {
 
-                convertedMap.put(product, itemsSold);
+                for (Map.Entry<K, CacheObject> entry : window.entrySet()) {
+                    convertedMap.put(entry.getKey(), entry.getValue().value);
+                }
             }
 
             return convertedMap;
+        } finally {
+            release();
         }
     }
-
-
-//    public Map<K, V> convertToMap2() {
-//
-//        Map<K, V> map = new HashMap<>();
-//
-//        synchronized (lruMap) {
-//
-//            Iterator it = lruMap.entrySet().iterator();
-//
-//            while (it.hasNext()) {
-//
-//                Map.Entry entry = (Map.Entry) it.next();
-//
-//                K k = (K) entry.getKey();
-//                V v = (V) entry.getValue();
-//
-//                map.put(k, v);
-//            }
-//
-//            return map;
-//        }
-//    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,544 @@
+package com.stock.manager.StockManager.util;
+
+import com.stock.manager.StockManager.models.Product;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The latest stock of every product, kept outside of the heap in the direct {@link ByteBuffer}s,
+ * so a catalog of millions of products doesn't add millions of objects for the GC to trace.
+ * <p>
+ * Every product is a fixed-width record of the position of its ID, the dictionary ID of the
+ * stock ID, the epoch millis of the stock and the quantity. The records are appended to the
+ * chunks of 1 MB and never move. The product IDs are appended to their own chunks, a byte per
+ * char if all the chars fit into Latin-1 and two bytes per char otherwise. The records are
+ * found by an open-addressing index with the linear probing, every slot holds the hash of the
+ * product ID and the number of its record.
+ * <p>
+ * The product IDs are matched case-insensitively, and the ID a product was first stored with
+ * is the one we respond with. The reads don't lock, they are validated against the writes
+ * of a {@link StampedLock} and only repeated under its read lock if a write interleaved.
+ */
+public class OffHeapStockStore {
+
+
+    /**
+     * the layout of a record
+     */
+    private static final int KEY_POSITION = 0;
+    private static final int KEY_LENGTH = 8;
+    private static final int STOCK_ID = 12;
+    private static final int TIMESTAMP = 16;
+    private static final int QUANTITY = 24;
+
+    static final int RECORD_BYTES = 32;
+
+    private static final int RECORD_CHUNK_SHIFT = 15;
+    private static final int RECORDS_PER_CHUNK = 1 << RECORD_CHUNK_SHIFT;
+
+    private static final int KEY_CHUNK_SHIFT = 20;
+    private static final int KEY_CHUNK_BYTES = 1 << KEY_CHUNK_SHIFT;
+
+    /**
+     * the length of a product ID with two bytes per char has the sign bit set
+     */
+    private static final int WIDE = 0x80000000;
+
+    /**
+     * a slot is the hash of the product ID and the record number + 1, 0 is an empty slot
+     */
+    private static final int SLOT_BYTES = 8;
+
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * the stock IDs repeat over the products, they are stored once
+     */
+    private final StringDictionary stockIds = new StringDictionary();
+
+    private final int initialCapacity;
+
+    private ByteBuffer index;
+    private int mask;
+
+    private ByteBuffer[] records;
+    private int recordChunks;
+    private int size;
+
+    private ByteBuffer[] keys;
+    private int keyChunks;
+    private int keyPosition;
+
+
+    /**
+     * @param expectedProducts the number of products the index is sized for, it grows beyond
+     */
+    public OffHeapStockStore(int expectedProducts) {
+
+        int capacity = 16;
+
+        while (capacity * MAX_LOAD_FACTOR < expectedProducts) {
+            capacity <<= 1;
+        }
+
+        initialCapacity = capacity;
+        reset();
+    }
+
+
+    private void reset() {
+
+        index = ByteBuffer.allocateDirect(initialCapacity * SLOT_BYTES);
+        mask = initialCapacity - 1;
+
+        records = new ByteBuffer[16];
+        recordChunks = 0;
+        size = 0;
+
+        keys = new ByteBuffer[16];
+        keyChunks = 0;
+        keyPosition = KEY_CHUNK_BYTES;
+    }
+
+
+    /**
+     * store the stock of the product unless the stored stock is newer. A stock as old as the
+     * stored one overrides it, the same as the storage does.
+     *
+     * @param product
+     * @return true if the stock is stored
+     */
+    public boolean putIfNewer(Product product) {
+
+        String productId = product.getProductId();
+        long timestamp = product.getTimestamp().getTime();
+        int stockId = product.getId() == null ? -1 : stockIds.idOf(product.getId());
+
+        int hash = hash(productId);
+
+        long stamp = lock.writeLock();
+
+        try {
+
+            int record = find(productId, hash);
+
+            if (record < 0) {
+
+                record = appendRecord(productId);
+                insert(hash, record);
+
+            } else if (timestamp < recordOf(record).getLong(offsetOf(record) + TIMESTAMP)) {
+                return false;
+            }
+
+            ByteBuffer chunk = recordOf(record);
+            int offset = offsetOf(record);
+
+            chunk.putInt(offset + STOCK_ID, stockId);
+            chunk.putLong(offset + TIMESTAMP, timestamp);
+            chunk.putInt(offset + QUANTITY, product.getQuantity());
+
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * @param productId
+     * @return the epoch millis of the stored stock, or {@link Long#MIN_VALUE} if the product
+     * is not stored
+     */
+    public long timestampOf(String productId) {
+
+        int hash = hash(productId);
+        long stamp = lock.tryOptimisticRead();
+
+        if (stamp != 0) {
+
+            try {
+
+                long timestamp = readTimestamp(productId, hash);
+
+                if (lock.validate(stamp)) {
+                    return timestamp;
+                }
+            } catch (RuntimeException e) {
+                /*
+                 * a write moved the buffers while we read them, we read again under the lock
+                 * */
+            }
+        }
+
+        stamp = lock.readLock();
+
+        try {
+            return readTimestamp(productId, hash);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    private long readTimestamp(String productId, int hash) {
+
+        int record = find(productId, hash);
+        return record < 0 ? Long.MIN_VALUE : recordOf(record).getLong(offsetOf(record) + TIMESTAMP);
+    }
+
+
+    /**
+     * @param productId
+     * @return the stored stock of the product
+     */
+    public Optional<Product> get(String productId) {
+
+        int hash = hash(productId);
+        long stamp = lock.tryOptimisticRead();
+
+        if (stamp != 0) {
+
+            try {
+
+                Product product = read(productId, hash);
+
+                if (lock.validate(stamp)) {
+                    return Optional.ofNullable(product);
+                }
+            } catch (RuntimeException e) {
+                /*
+                 * a write moved the buffers while we read them, we read again under the lock
+                 * */
+            }
+        }
+
+        stamp = lock.readLock();
+
+        try {
+            return Optional.ofNullable(read(productId, hash));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    private Product read(String productId, int hash) {
+
+        int record = find(productId, hash);
+
+        if (record < 0) {
+            return null;
+        }
+
+        ByteBuffer chunk = recordOf(record);
+        int offset = offsetOf(record);
+
+        int stockId = chunk.getInt(offset + STOCK_ID);
+        Timestamp timestamp = new Timestamp(chunk.getLong(offset + TIMESTAMP));
+
+        return new Product(keyOf(record), null, stockId < 0 ? null : stockIds.valueOf(stockId), timestamp,
+                chunk.getInt(offset + QUANTITY));
+    }
+
+
+    /**
+     * remove all the products, the memory is released once the buffers are collected
+     */
+    public void clear() {
+
+        long stamp = lock.writeLock();
+
+        try {
+            reset();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * find the record of the product by probing the slots from the one of its hash. The probing
+     * ends at the first empty slot, and it never visits more slots than the index has, so it
+     * ends even if it reads an index which is being rebuilt.
+     */
+    private int find(String productId, int hash) {
+
+        ByteBuffer slots = index;
+        int slotMask = mask;
+
+        for (int i = hash & slotMask, probes = 0; probes <= slotMask; i = (i + 1) & slotMask, probes++) {
+
+            int record = slots.getInt(i * SLOT_BYTES + 4) - 1;
+
+            if (record < 0) {
+                return -1;
+            }
+
+            if (slots.getInt(i * SLOT_BYTES) == hash && keyEquals(record, productId)) {
+                return record;
+            }
+        }
+
+        return -1;
+    }
+
+
+    private void insert(int hash, int record) {
+
+        if (size > (mask + 1) * MAX_LOAD_FACTOR) {
+            grow();
+        }
+
+        put(index, mask, hash, record);
+    }
+
+
+    private static void put(ByteBuffer slots, int slotMask, int hash, int record) {
+
+        int i = hash & slotMask;
+
+        while (slots.getInt(i * SLOT_BYTES + 4) != 0) {
+            i = (i + 1) & slotMask;
+        }
+
+        slots.putInt(i * SLOT_BYTES, hash);
+        slots.putInt(i * SLOT_BYTES + 4, record + 1);
+    }
+
+
+    /**
+     * double the index, the records are re-inserted by their stored hashes without reading
+     * their product IDs
+     */
+    private void grow() {
+
+        int capacity = (mask + 1) * 2;
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+
+        for (int i = 0; i <= mask; i++) {
+
+            int record = index.getInt(i * SLOT_BYTES + 4) - 1;
+
+            if (record >= 0) {
+                put(grown, capacity - 1, index.getInt(i * SLOT_BYTES), record);
+            }
+        }
+
+        index = grown;
+        mask = capacity - 1;
+    }
+
+
+    /**
+     * append the record of a new product and its product ID
+     *
+     * @return the number of the record
+     */
+    private int appendRecord(String productId) {
+
+        int record = size;
+
+        if ((record & (RECORDS_PER_CHUNK - 1)) == 0) {
+
+            if (recordChunks == records.length) {
+                records = Arrays.copyOf(records, recordChunks * 2);
+            }
+
+            records[recordChunks++] = ByteBuffer.allocateDirect(RECORDS_PER_CHUNK * RECORD_BYTES);
+        }
+
+        boolean wide = false;
+
+        for (int i = 0; i < productId.length() && !wide; i++) {
+            wide = productId.charAt(i) > 0xFF;
+        }
+
+        int bytes = wide ? 2 * productId.length() : productId.length();
+
+        if (bytes > KEY_CHUNK_BYTES) {
+            throw new IllegalArgumentException("the product ID is too long to be stored");
+        }
+
+        if (keyPosition + bytes > KEY_CHUNK_BYTES) {
+
+            if (keyChunks == keys.length) {
+                keys = Arrays.copyOf(keys, keyChunks * 2);
+            }
+
+            keys[keyChunks++] = ByteBuffer.allocateDirect(KEY_CHUNK_BYTES);
+            keyPosition = 0;
+        }
+
+        ByteBuffer keyChunk = keys[keyChunks - 1];
+
+        for (int i = 0; i < productId.length(); i++) {
+
+            if (wide) {
+                keyChunk.putChar(keyPosition + 2 * i, productId.charAt(i));
+            } else {
+                keyChunk.put(keyPosition + i, (byte) productId.charAt(i));
+            }
+        }
+
+        ByteBuffer chunk = recordOf(record);
+        int offset = offsetOf(record);
+
+        chunk.putLong(offset + KEY_POSITION, ((long) (keyChunks - 1) << KEY_CHUNK_SHIFT) + keyPosition);
+        chunk.putInt(offset + KEY_LENGTH, wide ? productId.length() | WIDE : productId.length());
+
+        keyPosition += bytes;
+        size = record + 1;
+
+        return record;
+    }
+
+
+    private boolean keyEquals(int record, String productId) {
+
+        ByteBuffer chunk = recordOf(record);
+        int offset = offsetOf(record);
+
+        int length = chunk.getInt(offset + KEY_LENGTH);
+        boolean wide = (length & WIDE) != 0;
+        length &= ~WIDE;
+
+        if (length != productId.length()) {
+            return false;
+        }
+
+        long position = chunk.getLong(offset + KEY_POSITION);
+        ByteBuffer keyChunk = keys[(int) (position >>> KEY_CHUNK_SHIFT)];
+        int from = (int) (position & (KEY_CHUNK_BYTES - 1));
+
+        for (int i = 0; i < length; i++) {
+
+            char c = wide ? keyChunk.getChar(from + 2 * i) : (char) (keyChunk.get(from + i) & 0xFF);
+
+            if (c != productId.charAt(i) && Character.toLowerCase(c) != Character.toLowerCase(productId.charAt(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    private String keyOf(int record) {
+
+        ByteBuffer chunk = recordOf(record);
+        int offset = offsetOf(record);
+
+        int length = chunk.getInt(offset + KEY_LENGTH);
+        boolean wide = (length & WIDE) != 0;
+        length &= ~WIDE;
+
+        long position = chunk.getLong(offset + KEY_POSITION);
+        ByteBuffer keyChunk = keys[(int) (position >>> KEY_CHUNK_SHIFT)];
+        int from = (int) (position & (KEY_CHUNK_BYTES - 1));
+
+        char[] chars = new char[length];
+
+        for (int i = 0; i < length; i++) {
+            chars[i] = wide ? keyChunk.getChar(from + 2 * i) : (char) (keyChunk.get(from + i) & 0xFF);
+        }
+
+        return new String(chars);
+    }
+
+
+    private ByteBuffer recordOf(int record) {
+        return records[record >>> RECORD_CHUNK_SHIFT];
+    }
+
+    private static int offsetOf(int record) {
+        return (record & (RECORDS_PER_CHUNK - 1)) * RECORD_BYTES;
+    }
+
+
+    /**
+     * the hash of the lower case product ID, computed without creating the lower case string
+     */
+    private static int hash(String productId) {
+
+        int h = 0;
+
+        for (int i = 0; i < productId.length(); i++) {
+            h = 31 * h + Character.toLowerCase(productId.charAt(i));
+        }
+
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        h ^= (h >>> 16);
+
+        return h;
+    }
+
+
+    /**
+     * @return the number of the stored products
+     */
+    public int size() {
+
+        long stamp = lock.readLock();
+
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the number of the slots of the index
+     */
+    public int getCapacity() {
+
+        long stamp = lock.readLock();
+
+        try {
+            return mask + 1;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the share of the slots of the index which are taken
+     */
+    public double getLoadFactor() {
+
+        long stamp = lock.readLock();
+
+        try {
+            return (double) size / (mask + 1);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the bytes of the direct memory allocated for the index, the records and the
+     * product IDs
+     */
+    public long getMemoryBytes() {
+
+        long stamp = lock.readLock();
+
+        try {
+            return (long) index.capacity()
+                    + (long) recordChunks * RECORDS_PER_CHUNK * RECORD_BYTES
+                    + (long) keyChunks * KEY_CHUNK_BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
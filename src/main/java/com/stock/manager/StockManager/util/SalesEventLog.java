@@ -0,0 +1,679 @@
+package com.stock.manager.StockManager.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The durable log of the sales. Every sale is appended as a fixed-size record of the
+ * dictionary ID of the product, the epoch millis of the sale and the items sold, to the
+ * memory-mapped segment files of {@code sales-<index>.log}. The product IDs are appended
+ * to {@code dictionary.dat} the first time they are seen, and they are matched
+ * case-insensitively like in the ledger and the stores of the products.
+ * <p>
+ * The appends only write to the mapped memory. The writers who need their sales on the
+ * disk call {@link #sync(long)} with the position of their last record, and a single force
+ * of the segment makes all the records appended so far durable, so the concurrent writers
+ * share the cost of the force (group commit).
+ * <p>
+ * The log is read from a position with {@link #replay(long, Visitor)}, which visits the
+ * records in the order they were appended. The segments whose records are all in a snapshot
+ * are deleted with {@link #deleteBefore(long)}, and the latest timestamp of every full segment
+ * is kept in {@code segments.idx}, so a replay of the recent sales can skip the old segments.
+ */
+public class SalesEventLog implements Closeable {
+
+
+    /**
+     * the int dictionary ID, the long epoch millis and the long items sold
+     */
+    public static final int RECORD_SIZE = 4 + 8 + 8;
+
+    private static final String DICTIONARY_FILE = "dictionary.dat";
+    private static final String INDEX_FILE = "segments.idx";
+
+    /**
+     * the int index of a segment and the long latest timestamp of its sales
+     */
+    private static final int INDEX_ENTRY_SIZE = 4 + 8;
+
+    private final Path directory;
+    private final int recordsPerSegment;
+
+    private final StringDictionary dictionary = StringDictionary.caseInsensitive();
+    private final FileChannel dictionaryChannel;
+
+    /**
+     * the records refer the entries of the dictionary file by their position. A file written
+     * while the product IDs were matched case-sensitively can hold the same product more than
+     * once, so we keep the dictionary ID of every entry and the entry of every dictionary ID.
+     */
+    private int[] idOfEntry = new int[64];
+    private int[] entryOfId = new int[64];
+    private int mappedIds;
+
+    /**
+     * the number of the dictionary entries in the file and the number of them which are forced
+     */
+    private int dictionaryWritten;
+    private volatile int dictionaryForced;
+
+    private final FileChannel indexChannel;
+
+    /**
+     * the segment files we keep, the index of the first of them and the latest timestamp of
+     * the sales of the full ones. The timestamp is Long.MAX_VALUE if it's not in the index.
+     */
+    private final List<Path> segments = new ArrayList<>();
+    private int firstSegment;
+    private final List<Long> latestTimestamps = new ArrayList<>();
+
+    /**
+     * the latest timestamp of the sales in the current segment
+     */
+    private long currentLatestTimestamp = Long.MIN_VALUE;
+
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+
+    /**
+     * the next free record of the current segment
+     */
+    private int slot;
+
+    /**
+     * the number of records appended to the log, which is also the position after the last record
+     */
+    private long appended;
+
+    /**
+     * guards the appends and the files of the log. The locks are not monitors, so the
+     * virtual threads waiting for them, or for a force of the log, don't pin their carrier
+     * threads.
+     */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition forced = commitLock.newCondition();
+    private long durable;
+    private boolean forcing;
+
+
+    /**
+     * the callback of the replay for every record in the log
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        void visit(String productId, long timestampMillis, long delta);
+    }
+
+
+    /**
+     * open the log in the directory, or create an empty one. The appends continue after the
+     * last record of the log.
+     *
+     * @param directory
+     * @param recordsPerSegment the number of records in a segment file
+     * @throws IOException
+     */
+    public SalesEventLog(Path directory, int recordsPerSegment) throws IOException {
+
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+
+        Files.createDirectories(directory);
+
+        dictionaryChannel = FileChannel.open(directory.resolve(DICTIONARY_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        loadDictionary();
+
+        indexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "sales-*.log")) {
+
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+
+        /*
+         * the index in the file name is zero padded, so, the names sort in the order of the index
+         * */
+        Collections.sort(segments);
+
+        if (segments.isEmpty()) {
+            segments.add(segmentPath(0));
+        }
+
+        String first = segments.get(0).getFileName().toString();
+        firstSegment = Integer.parseInt(first.substring("sales-".length(), first.length() - ".log".length()));
+
+        loadIndex();
+
+        openSegment(segments.size() - 1);
+
+        /*
+         * the records are appended in the order, so, the first empty record is the end of the log.
+         * A record of a product which didn't make it to the dictionary before a crash is never
+         * synced, and it ends the log too.
+         * */
+        while (slot < recordsPerSegment
+                && segment.getLong(slot * RECORD_SIZE + 12) != 0
+                && segment.getInt(slot * RECORD_SIZE) < dictionaryWritten) {
+
+            currentLatestTimestamp = Math.max(currentLatestTimestamp, segment.getLong(slot * RECORD_SIZE + 4));
+            slot++;
+        }
+
+        appended = (long) (firstSegment + segments.size() - 1) * recordsPerSegment + slot;
+        durable = appended;
+    }
+
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("sales-%08d.log", index));
+    }
+
+
+    private void openSegment(int index) throws IOException {
+
+        if (segmentChannel != null) {
+            segmentChannel.close();
+        }
+
+        segmentChannel = FileChannel.open(segments.get(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        slot = 0;
+    }
+
+
+    /**
+     * read the product IDs of the dictionary file, an entry cut short by a crash is dropped
+     */
+    private void loadDictionary() throws IOException {
+
+        long size = dictionaryChannel.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+        while (buffer.hasRemaining()) {
+
+            if (dictionaryChannel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+
+        buffer.flip();
+
+        while (buffer.remaining() >= 4) {
+
+            int length = buffer.getInt(buffer.position());
+
+            if (length < 0 || buffer.remaining() < 4 + length) {
+                break;
+            }
+
+            buffer.getInt();
+
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+
+            addEntry(dictionary.idOf(new String(bytes, StandardCharsets.UTF_8)));
+        }
+
+        dictionaryChannel.truncate(buffer.position());
+        dictionaryChannel.position(buffer.position());
+
+        dictionaryForced = dictionaryWritten;
+    }
+
+
+    /**
+     * map the next entry of the dictionary file to the dictionary ID, the first entry of an ID
+     * is the one its records refer
+     */
+    private void addEntry(int id) {
+
+        int entry = dictionaryWritten++;
+
+        if (entry == idOfEntry.length) {
+            idOfEntry = Arrays.copyOf(idOfEntry, entry * 2);
+        }
+
+        idOfEntry[entry] = id;
+
+        /*
+         * the dictionary IDs are assigned in the order, so a new ID is the next one without
+         * an entry
+         * */
+        if (id == mappedIds) {
+
+            if (id == entryOfId.length) {
+                entryOfId = Arrays.copyOf(entryOfId, id * 2);
+            }
+
+            entryOfId[id] = entry;
+            mappedIds++;
+        }
+    }
+
+
+    /**
+     * read the latest timestamps of the full segments we keep, an entry cut short by a crash
+     * is dropped. The entries of the deleted segments are skipped.
+     */
+    private void loadIndex() throws IOException {
+
+        long size = indexChannel.size() / INDEX_ENTRY_SIZE * INDEX_ENTRY_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+        while (buffer.hasRemaining()) {
+
+            if (indexChannel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+
+        buffer.flip();
+
+        for (int i = 0; i < segments.size() - 1; i++) {
+            latestTimestamps.add(Long.MAX_VALUE);
+        }
+
+        while (buffer.remaining() >= INDEX_ENTRY_SIZE) {
+
+            int index = buffer.getInt() - firstSegment;
+            long latest = buffer.getLong();
+
+            if (index >= 0 && index < latestTimestamps.size()) {
+                latestTimestamps.set(index, latest);
+            }
+        }
+
+        indexChannel.truncate(size);
+        indexChannel.position(size);
+    }
+
+
+    /**
+     * append the sale to the log. The record is in the memory of the segment when the method
+     * returns and it's only guaranteed to survive a crash after the {@link #sync(long)}.
+     *
+     * @param productId
+     * @param timestampMillis
+     * @param delta           the items sold, the sales of 0 items are not logged
+     * @return the position after the record, to be passed to the {@link #sync(long)}
+     */
+    public long append(String productId, long timestampMillis, long delta) {
+
+        appendLock.lock();
+
+        try {
+
+            if (delta == 0) {
+                return appended;
+            }
+
+            int id = dictionary.idOf(productId);
+
+            if (id == mappedIds) {
+                writeDictionaryEntry(productId);
+                addEntry(id);
+            }
+
+            if (slot == recordsPerSegment) {
+                roll();
+            }
+
+            int offset = slot * RECORD_SIZE;
+
+            /*
+             * the items sold are written last, a record with no items sold is the end of the log
+             * */
+            segment.putInt(offset, entryOfId[id]);
+            segment.putLong(offset + 4, timestampMillis);
+            segment.putLong(offset + 12, delta);
+
+            currentLatestTimestamp = Math.max(currentLatestTimestamp, timestampMillis);
+            slot++;
+
+            return ++appended;
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+
+    private void writeDictionaryEntry(String value) throws IOException {
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.length);
+        buffer.putInt(bytes.length).put(bytes).flip();
+
+        while (buffer.hasRemaining()) {
+            dictionaryChannel.write(buffer);
+        }
+    }
+
+
+    /**
+     * the full segment is forced before we move to the next one, so, the group commit
+     * only ever needs to force the current segment. The latest timestamp of its sales is
+     * added to the index, a segment missing from the index is always replayed.
+     */
+    private void roll() throws IOException {
+
+        dictionaryChannel.force(false);
+        segment.force();
+
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        entry.putInt(firstSegment + segments.size() - 1).putLong(currentLatestTimestamp).flip();
+
+        while (entry.hasRemaining()) {
+            indexChannel.write(entry);
+        }
+
+        latestTimestamps.add(currentLatestTimestamp);
+        currentLatestTimestamp = Long.MIN_VALUE;
+
+        segments.add(segmentPath(firstSegment + segments.size()));
+        openSegment(segments.size() - 1);
+    }
+
+
+    /**
+     * make the records up to the position durable. If another thread is forcing the log
+     * already, we wait for it and force the records appended in the meantime with one more
+     * force, if they are still not durable.
+     *
+     * @param position the position returned by the {@link #append(String, long, long)}
+     */
+    public void sync(long position) {
+
+        commitLock.lock();
+
+        try {
+
+            while (durable < position && forcing) {
+
+                try {
+                    forced.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("interrupted while waiting for the sales log"));
+                }
+            }
+
+            if (durable >= position) {
+                return;
+            }
+
+            forcing = true;
+
+        } finally {
+            commitLock.unlock();
+        }
+
+        long target = -1;
+
+        try {
+
+            MappedByteBuffer current;
+            int dictionarySize;
+
+            appendLock.lock();
+
+            try {
+                target = appended;
+                current = segment;
+                dictionarySize = dictionaryWritten;
+            } finally {
+                appendLock.unlock();
+            }
+
+            /*
+             * the products of the records must be durable before the records
+             * */
+            if (dictionarySize > dictionaryForced) {
+                dictionaryChannel.force(false);
+                dictionaryForced = dictionarySize;
+            }
+
+            current.force();
+
+        } catch (IOException e) {
+
+            target = -1;
+            throw new UncheckedIOException(e);
+
+        } finally {
+
+            commitLock.lock();
+
+            try {
+
+                durable = Math.max(durable, target);
+                forcing = false;
+
+                forced.signalAll();
+
+            } finally {
+                commitLock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * visit the records of the log from the position to the end in the order they were
+     * appended. The records of the deleted segments are not visited. The replay should be
+     * done before the appends start.
+     *
+     * @param fromPosition the number of records to skip from the beginning of the log
+     * @param visitor
+     * @return the position after the last record visited
+     * @throws IOException
+     */
+    public long replay(long fromPosition, Visitor visitor) throws IOException {
+
+        long position;
+        long end;
+        int first;
+
+        appendLock.lock();
+
+        try {
+            first = firstSegment;
+            position = Math.max(fromPosition, (long) first * recordsPerSegment);
+            end = appended;
+        } finally {
+            appendLock.unlock();
+        }
+
+        while (position < end) {
+
+            int index = (int) (position / recordsPerSegment);
+            int from = (int) (position % recordsPerSegment);
+            int to = (int) Math.min(recordsPerSegment, end - (long) index * recordsPerSegment);
+
+            try (FileChannel channel = FileChannel.open(segments.get(index - first), StandardOpenOption.READ)) {
+
+                MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) to * RECORD_SIZE);
+
+                for (int i = from; i < to; i++) {
+
+                    int offset = i * RECORD_SIZE;
+
+                    visitor.visit(dictionary.valueOf(idOfEntry[records.getInt(offset)]),
+                            records.getLong(offset + 4), records.getLong(offset + 12));
+                }
+            }
+
+            position = (long) index * recordsPerSegment + to;
+        }
+
+        return position;
+    }
+
+
+    /**
+     * find the position a replay has to start from to visit all the sales at or after the
+     * timestamp. It's the start of the first segment with such a sale, the segments before
+     * it only hold older sales.
+     *
+     * @param timestampMillis
+     * @return the position, or the end of the log if it holds no such sale
+     */
+    public long positionOf(long timestampMillis) {
+
+        appendLock.lock();
+
+        try {
+
+            for (int i = 0; i < latestTimestamps.size(); i++) {
+                if (latestTimestamps.get(i) >= timestampMillis) {
+                    return (long) (firstSegment + i) * recordsPerSegment;
+                }
+            }
+
+            return currentLatestTimestamp >= timestampMillis
+                    ? (long) (firstSegment + segments.size() - 1) * recordsPerSegment
+                    : appended;
+
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+
+    /**
+     * delete the segment files whose records are all before the position, ie they are in a
+     * snapshot already. The current segment is never deleted.
+     *
+     * @param position
+     * @return the number of the segments deleted
+     * @throws IOException
+     */
+    public int deleteBefore(long position) throws IOException {
+
+        appendLock.lock();
+
+        try {
+
+            int deleted = 0;
+
+            while (segments.size() > 1 && (long) (firstSegment + 1) * recordsPerSegment <= position) {
+
+                Files.deleteIfExists(segments.remove(0));
+                latestTimestamps.remove(0);
+
+                firstSegment++;
+                deleted++;
+            }
+
+            return deleted;
+
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+
+    /**
+     * @return the position of the first record we still keep, the records before it are in
+     * the deleted segments
+     */
+    public long getStartPosition() {
+
+        appendLock.lock();
+
+        try {
+            return (long) firstSegment * recordsPerSegment;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of records in the log, which is also the position after the last record
+     */
+    public long getPosition() {
+
+        appendLock.lock();
+
+        try {
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of segment files of the log
+     */
+    public int getSegmentCount() {
+
+        appendLock.lock();
+
+        try {
+            return segments.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return the dictionary of the product IDs in the log
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+
+    /**
+     * force the records appended so far and close the files
+     */
+    @Override
+    public void close() throws IOException {
+
+        appendLock.lock();
+
+        try {
+
+            dictionaryChannel.force(false);
+            segment.force();
+
+            dictionaryChannel.close();
+            indexChannel.close();
+            segmentChannel.close();
+
+        } finally {
+            appendLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.stock.manager.StockManager.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The sales ledger records every sale of a product in the bucket of the day it
+ * happened. The buckets are primitive ring buffers indexed by the epoch day, so the items
+ * sold in a range is the sum of a handful of array slots and nothing is formatted or
+ * parsed on the way.
+ * <p>
+ * The daily buckets cover the last {@value #DAYS} days, which is enough for today and
+ * the whole previous month. The sales older than that only count towards the total items
+ * sold of the product, the older sales are read from the daily rollups of the storage.
+ * <p>
+ * The products are keyed by their IDs in a case-insensitive {@link StringDictionary}, which
+ * can be shared with the other indexes of the products, and the sales record of a product
+ * is a slot of an array indexed by that ID.
+ */
+public class SalesLedger {
+
+
+    public static final int DAYS = 64;
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    private final StringDictionary productIds;
+
+    /**
+     * the sales are keyed by the dictionary ID of the product, so every lookup
+     * by the ID is a single array read instead of a hash probe.
+     */
+    private final DenseIdTable<ProductSales> sales;
+
+
+    /**
+     * the buckets of a single product. The slot of a day is the epoch day modulo the
+     * number of buckets, and we keep the day the slot currently holds next to it. A
+     * newer day reuses the slot of the day which is out of the range by now.
+     * <p>
+     * The sales of a product are guarded by its own monitor, the writers and the
+     * readers of the different products never wait for each other.
+     */
+    public static final class ProductSales {
+
+        private final int id;
+        private final StringDictionary productIds;
+
+        private long itemsSold;
+
+        private final long[] daily = new long[DAYS];
+        private final int[] dayOfSlot = new int[DAYS];
+
+        private ProductSales(int id, StringDictionary productIds) {
+
+            this.id = id;
+            this.productIds = productIds;
+
+            Arrays.fill(dayOfSlot, Integer.MIN_VALUE);
+        }
+
+        /**
+         * @return the product ID as it was first seen, resolved from the dictionary
+         */
+        public String getProductId() {
+            return productIds.valueOf(id);
+        }
+
+        /**
+         * @return the dictionary ID of the product
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return the items sold since we started to track the product
+         */
+        public synchronized long getItemsSold() {
+            return itemsSold;
+        }
+
+        private synchronized void record(long timestampMillis, long delta) {
+
+            itemsSold += delta;
+
+            add(daily, dayOfSlot, (int) Math.floorDiv(timestampMillis, MILLIS_PER_DAY), delta);
+        }
+
+        /**
+         * find the items sold between the epoch days (both inclusive)
+         *
+         * @param fromEpochDay
+         * @param toEpochDay
+         * @return
+         */
+        public synchronized long itemsSold(long fromEpochDay, long toEpochDay) {
+            return sum(daily, dayOfSlot, fromEpochDay, toEpochDay);
+        }
+
+        /**
+         * hand the days and the items sold of the slots which hold a day to the sink. It's
+         * used to take the snapshot of the ledger.
+         *
+         * @param sink
+         * @return the items sold since we started to track the product
+         */
+        synchronized long export(BucketSink sink) {
+
+            for (int i = 0; i < DAYS; i++) {
+                if (dayOfSlot[i] != Integer.MIN_VALUE) {
+                    sink.bucket(dayOfSlot[i], daily[i]);
+                }
+            }
+
+            return itemsSold;
+        }
+
+        /**
+         * put back a bucket handed out by the {@link #export(BucketSink)}
+         */
+        synchronized void restore(int day, long items) {
+            add(daily, dayOfSlot, day, items);
+        }
+
+        private static void add(long[] buckets, int[] periodOfSlot, int period, long delta) {
+
+            int slot = Math.floorMod(period, buckets.length);
+
+            if (periodOfSlot[slot] == period) {
+                buckets[slot] += delta;
+            }
+
+            /*
+             * the slot holds an older period which is out of the range by now
+             * */
+            else if (periodOfSlot[slot] < period) {
+                periodOfSlot[slot] = period;
+                buckets[slot] = delta;
+            }
+
+            /*
+             * otherwise, the sale is older than the range of the buckets
+             * */
+        }
+
+        private static long sum(long[] buckets, int[] periodOfSlot, long from, long to) {
+
+            long sum = 0;
+
+            /*
+             * there are no more distinct slots than the buckets
+             * */
+            long start = Math.max(from, to - buckets.length + 1);
+
+            for (long period = start; period <= to; period++) {
+
+                int slot = (int) Math.floorMod(period, (long) buckets.length);
+
+                if (periodOfSlot[slot] == period) {
+                    sum += buckets[slot];
+                }
+            }
+
+            return sum;
+        }
+    }
+
+
+    /**
+     * receives the buckets of a product while the ledger is exported
+     */
+    interface BucketSink {
+
+        void bucket(int day, long items);
+    }
+
+
+    /**
+     * @param expectedProducts the number of products we expect to track, used to pre-size
+     *                         the store and avoid re-hashing while the catalog grows.
+     */
+    public SalesLedger(int expectedProducts) {
+        this(expectedProducts, StringDictionary.caseInsensitive());
+    }
+
+
+    /**
+     * @param expectedProducts the number of products we expect to track
+     * @param productIds       the case-insensitive dictionary of the product IDs, shared
+     *                         with the other indexes of the products
+     */
+    public SalesLedger(int expectedProducts, StringDictionary productIds) {
+
+        this.productIds = productIds;
+        this.sales = new DenseIdTable<>(expectedProducts);
+    }
+
+
+    /**
+     * record the items sold for the product in the buckets of the time of the sale
+     *
+     * @param productId
+     * @param timestampMillis the timestamp of the stock update that revealed the sale
+     * @param delta           the items sold with this stock update
+     */
+    public void record(String productId, long timestampMillis, long delta) {
+
+        if (productId == null) {
+            return;
+        }
+
+        record(productIds.idOf(productId), timestampMillis, delta);
+    }
+
+
+    /**
+     * record the items sold for the product of the dictionary ID. A sale after tomorrow is
+     * dropped, it would take over the bucket of a day we still keep.
+     *
+     * @param id              the ID of the product in the dictionary of the ledger
+     * @param timestampMillis
+     * @param delta
+     */
+    public void record(int id, long timestampMillis, long delta) {
+
+        /*
+         * a day of tolerance for the clocks of the clients which are ahead of ours
+         * */
+        if (Math.floorDiv(timestampMillis, MILLIS_PER_DAY) > Math.floorDiv(System.currentTimeMillis(), MILLIS_PER_DAY) + 1) {
+            return;
+        }
+
+        sales.computeIfAbsent(id, this::newSales).record(timestampMillis, delta);
+    }
+
+
+    /**
+     * put back the sales of a product exported from a snapshot, the buckets are restored
+     * on the returned sales record. Any sales recorded for the product earlier are kept.
+     *
+     * @param productId
+     * @param itemsSold the items sold since we started to track the product
+     * @return
+     */
+    ProductSales restore(String productId, long itemsSold) {
+
+        ProductSales s = sales.computeIfAbsent(productIds.idOf(productId), this::newSales);
+
+        synchronized (s) {
+            s.itemsSold += itemsSold;
+        }
+
+        return s;
+    }
+
+
+    /**
+     * retrieve the items sold for the product since we started to track it
+     *
+     * @param productId
+     * @return the items sold, or 0 if we have no sales record for the product
+     */
+    public long get(String productId) {
+
+        if (productId == null) {
+            return 0L;
+        }
+
+        ProductSales s = sales.get(productIds.find(productId));
+        return s == null ? 0L : s.getItemsSold();
+    }
+
+
+    /**
+     * retrieve the items sold for the product between the epoch days (both inclusive)
+     *
+     * @param productId
+     * @param fromEpochDay
+     * @param toEpochDay
+     * @return
+     */
+    public long get(String productId, long fromEpochDay, long toEpochDay) {
+
+        if (productId == null) {
+            return 0L;
+        }
+
+        ProductSales s = sales.get(productIds.find(productId));
+        return s == null ? 0L : s.itemsSold(fromEpochDay, toEpochDay);
+    }
+
+
+    /**
+     * retrieve the items sold for the product of the dictionary ID between the epoch days
+     * (both inclusive)
+     *
+     * @param id
+     * @param fromEpochDay
+     * @param toEpochDay
+     * @return the items sold, or 0 if we have no sales record for the ID
+     */
+    public long itemsSold(int id, long fromEpochDay, long toEpochDay) {
+
+        ProductSales s = sales.get(id);
+        return s == null ? 0L : s.itemsSold(fromEpochDay, toEpochDay);
+    }
+
+
+    /**
+     * remove the sales record of the product
+     *
+     * @param productId
+     * @return the items sold before the removal, or 0 if there was no record
+     */
+    public long remove(String productId) {
+
+        if (productId == null) {
+            return 0L;
+        }
+
+        ProductSales s = sales.remove(productIds.find(productId));
+        return s == null ? 0L : s.getItemsSold();
+    }
+
+
+    /**
+     * remove the sales records of all the products
+     */
+    public void clear() {
+        sales.clear();
+    }
+
+
+    /**
+     * find the number of products we keep the sales record for
+     *
+     * @return
+     */
+    public int size() {
+        return sales.size();
+    }
+
+
+    /**
+     * a read-only and weakly consistent view over the sales records. It doesn't copy
+     * the store, so the readers can iterate it while the writers keep updating.
+     *
+     * @return
+     */
+    public Collection<ProductSales> products() {
+        return Collections.unmodifiableCollection(sales.values());
+    }
+
+
+    /**
+     * the product IDs are matched case-insensitively, the same way the primary key of
+     * the product table compares them, so the IDs of the dictionary are too.
+     *
+     * @return
+     */
+    public StringDictionary getProductIds() {
+        return productIds;
+    }
+
+
+    private ProductSales newSales(int id) {
+        return new ProductSales(id, productIds);
+    }
+}
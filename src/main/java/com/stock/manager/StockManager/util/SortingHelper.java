@@ -1,16 +1,14 @@
 package com.stock.manager.StockManager.util;
 
-import com.stock.manager.StockManager.models.Product;
-
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
-
-import static java.util.stream.Collectors.toMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntToLongFunction;
 
 /**
  * Created by Chaklader on 2019-03-04.
@@ -19,51 +17,36 @@ public class SortingHelper {
 
 
     /**
-     * accept a Map with key as Product and value as the items sold. Then, filter
-     * it for the given time range, sort it in descending order based on the value
-     * and return only the top n items in an updated Map.
+     * the number of values from which the top "n" selection is split over the common
+     * ForkJoinPool, and the size of the partitions we select sequentially.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+    static final int PARTITION_SIZE = 1 << 14;
+
+    /**
+     * accept the sales records with the product ID and the items sold per day. Then, sum
+     * the daily buckets of the given time range, select the top n items based on the items
+     * sold and return them in descending order in an updated Map.
      *
-     * @param map
+     * @param ledger
      * @param n
      * @param time
      * @return
      */
-    public static Map<Product, Integer> SortMapBasedOnValues(Map<Product, Integer> map, int n, String time) {
-
-        Map<Product, Integer> updatedMap = new HashMap<>();
+    public static Map<String, Long> SortMapBasedOnValues(SalesLedger ledger, int n, String time) {
 
         LocalDate t = LocalDate.now(ZoneOffset.UTC);
-        String today = t.toString();
-
-        /*
-         * retrieve the date a month from now
-         * */
-        LocalDate lastMonth = t.minus(1, ChronoUnit.MONTHS);
 
-        /*
-         * retrieve the date format of "yyyy-MM" from the "yyyy-MM-dd" format
-         * */
-        String monthAndYear = lastMonth.toString().substring(0, 7);
+        long fromEpochDay;
+        long toEpochDay;
 
         /*
          * store only the data for today in the map
          * */
         if (time.equalsIgnoreCase("today")) {
 
-            for (Map.Entry<Product, Integer> entry : map.entrySet()) {
-
-                Product p = entry.getKey();
-                int itemsSold = entry.getValue();
-
-                /*
-                 * format a datetime String similar of "yyyy-MM-dd HH:mm:ss.SS" to "yyyy-MM-dd"
-                 * */
-                String date = p.getTimestamp().toString().replaceAll(" .*", "");
-
-                if (date.equalsIgnoreCase(today)) {
-                    updatedMap.put(p, itemsSold);
-                }
-            }
+            fromEpochDay = t.toEpochDay();
+            toEpochDay = fromEpochDay;
         }
 
         /*
@@ -71,20 +54,10 @@ public class SortingHelper {
          * */
         else if (time.equalsIgnoreCase("lastMonth")) {
 
-            for (Map.Entry<Product, Integer> entry : map.entrySet()) {
+            LocalDate lastMonth = t.minus(1, ChronoUnit.MONTHS).withDayOfMonth(1);
 
-                Product p = entry.getKey();
-                int itemsSold = entry.getValue();
-
-                /*
-                 * format a datetime String similar of "yyyy-MM-dd HH:mm:ss.SS" to "yyyy-MM"
-                 * */
-                String date = p.getTimestamp().toString().substring(0, 7);
-
-                if (date.equalsIgnoreCase(monthAndYear)) {
-                    updatedMap.put(p, itemsSold);
-                }
-            }
+            fromEpochDay = lastMonth.toEpochDay();
+            toEpochDay = lastMonth.withDayOfMonth(lastMonth.lengthOfMonth()).toEpochDay();
         }
 
         /*
@@ -95,15 +68,250 @@ public class SortingHelper {
             return new HashMap<>();
         }
 
+        return topSelling(ledger, n, fromEpochDay, toEpochDay);
+    }
+
+
+    /**
+     * sum the daily buckets of the sales records between the epoch days (both inclusive) and
+     * select the top n products based on the items sold. The ledger only keeps the last
+     * {@value SalesLedger#DAYS} days, the sales of the days before that are not counted.
+     * <p>
+     * The selection runs over the range of the dictionary IDs of the ledger and reads the
+     * sales of an ID straight from the ledger, so the catalog is never copied.
+     *
+     * @param ledger
+     * @param n
+     * @param from
+     * @param to
+     * @return the items sold keyed by the product ID, the largest first
+     */
+    public static Map<String, Long> topSelling(SalesLedger ledger, int n, long from, long to) {
+
+        StringDictionary productIds = ledger.getProductIds();
 
         /*
-         * we only keep the top "n" values provided in the time range
+         * the items sold in the range is the sum of the daily buckets, and we only
+         * keep the top "n" values provided in the time range
          * */
-        Map<Product, Integer> sortedDecreasingly = updatedMap.entrySet().stream()
-                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue())).limit(n)
-                .collect(toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e2, LinkedHashMap::new));
+        long[] itemsSold = new long[Math.max(0, n)];
+        int[] top = selectTopN(productIds.size(), id -> ledger.itemsSold(id, from, to), n, itemsSold);
+
+        Map<String, Long> sortedDecreasingly = new LinkedHashMap<>();
+
+        for (int i = 0; i < top.length; i++) {
+
+            if (itemsSold[i] > 0) {
+                sortedDecreasingly.put(productIds.valueOf(top[i]), itemsSold[i]);
+            }
+        }
 
         return sortedDecreasingly;
     }
 
+
+    /**
+     * select the indices of the "n" largest values out of the "size" values, in descending order
+     * of the values. A bounded min-heap of the "n" largest values seen so far is kept, hence, the
+     * selection costs O(size log n) and only allocates the heap.
+     * <p>
+     * Above {@link #PARALLEL_THRESHOLD} values, the range is split over the common ForkJoinPool,
+     * every partition selects into its own heap and the heaps are merged at the end.
+     *
+     * @param size           the number of values
+     * @param valueOf        the value at an index, called once per index while selecting
+     * @param n              the number of values to select
+     * @param selectedValues if not null, receives the selected values in the same order
+     *                       as the returned indices
+     * @return the indices of the selected values, the largest value first
+     */
+    public static int[] selectTopN(int size, IntToLongFunction valueOf, int n, long[] selectedValues) {
+
+        if (n <= 0 || size <= 0) {
+            return new int[0];
+        }
+
+        TopNHeap heap;
+
+        if (size < PARALLEL_THRESHOLD) {
+
+            heap = new TopNHeap(n);
+            heap.offerAll(valueOf, 0, size);
+        } else {
+            heap = ForkJoinPool.commonPool().invoke(new TopNTask(valueOf, 0, size, n));
+        }
+
+        return heap.drainDescending(selectedValues);
+    }
+
+
+    /**
+     * a min-heap of the largest values seen so far with their indices, the smallest of
+     * them is at the root and is the first to leave when a larger value arrives.
+     */
+    private static final class TopNHeap {
+
+        private final int[] indices;
+        private final long[] values;
+
+        private int size;
+
+        private TopNHeap(int capacity) {
+            this.indices = new int[capacity];
+            this.values = new long[capacity];
+        }
+
+        private void offerAll(IntToLongFunction valueOf, int from, int to) {
+
+            for (int i = from; i < to; i++) {
+                offer(i, valueOf.applyAsLong(i));
+            }
+        }
+
+        private void offer(int index, long value) {
+
+            if (size < values.length) {
+
+                indices[size] = index;
+                values[size] = value;
+
+                siftUp(size++);
+            } else if (value > values[0]) {
+
+                indices[0] = index;
+                values[0] = value;
+
+                siftDown(0);
+            }
+        }
+
+        private void merge(TopNHeap other) {
+
+            for (int i = 0; i < other.size; i++) {
+                offer(other.indices[i], other.values[i]);
+            }
+        }
+
+        /**
+         * empty the heap into an array, the smallest value leaves first
+         * and is placed at the end
+         */
+        private int[] drainDescending(long[] selectedValues) {
+
+            int[] result = new int[size];
+
+            while (size > 0) {
+
+                result[size - 1] = indices[0];
+
+                if (selectedValues != null) {
+                    selectedValues[size - 1] = values[0];
+                }
+
+                size--;
+
+                indices[0] = indices[size];
+                values[0] = values[size];
+
+                siftDown(0);
+            }
+
+            return result;
+        }
+
+        private void siftUp(int i) {
+
+            while (i > 0) {
+
+                int parent = (i - 1) >>> 1;
+
+                if (values[parent] <= values[i]) {
+                    break;
+                }
+
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+
+            while (true) {
+
+                int left = 2 * i + 1;
+
+                if (left >= size) {
+                    break;
+                }
+
+                int right = left + 1;
+                int smallest = (right < size && values[right] < values[left]) ? right : left;
+
+                if (values[i] <= values[smallest]) {
+                    break;
+                }
+
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+
+            int index = indices[i];
+            indices[i] = indices[j];
+            indices[j] = index;
+
+            long value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+
+    /**
+     * split the range of the indices in halves until they are small enough to
+     * select sequentially, then merge the heaps of the halves
+     */
+    private static final class TopNTask extends RecursiveTask<TopNHeap> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntToLongFunction valueOf;
+
+        private final int from;
+        private final int to;
+        private final int n;
+
+        private TopNTask(IntToLongFunction valueOf, int from, int to, int n) {
+            this.valueOf = valueOf;
+            this.from = from;
+            this.to = to;
+            this.n = n;
+        }
+
+        @Override
+        protected TopNHeap compute() {
+
+            if (to - from <= PARTITION_SIZE) {
+
+                TopNHeap heap = new TopNHeap(n);
+                heap.offerAll(valueOf, from, to);
+
+                return heap;
+            }
+
+            int middle = (from + to) >>> 1;
+
+            TopNTask left = new TopNTask(valueOf, from, middle, n);
+            left.fork();
+
+            TopNHeap right = new TopNTask(valueOf, middle, to, n).compute();
+            TopNHeap heap = left.join();
+
+            heap.merge(right);
+            return heap;
+        }
+    }
+
 }
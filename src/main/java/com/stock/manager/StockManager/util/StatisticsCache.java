@@ -0,0 +1,216 @@
+package com.stock.manager.StockManager.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * The rendered statistics of every range, kept until a stock update could change them. Every
+ * stored stock increments the write epoch, and a result is valid as long as the epoch is the
+ * one it was computed in.
+ * <p>
+ * The periods which ended before today are closed and their results are only invalidated by
+ * the writes which touch a day before today, either the day of the new stock or the day of
+ * the stock it replaced. The writes of today's stocks leave them untouched, so the results of
+ * a closed period are computed once in practice.
+ * <p>
+ * Every result has a strong ETag made of the range, the period and the epoch it was computed
+ * in, so the clients which send it back in {@code If-None-Match} are answered without a
+ * computation.
+ */
+public class StatisticsCache {
+
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    /**
+     * the epochs start from 0 on every start of the app, the start time keeps the ETags of
+     * two runs apart
+     */
+    private final String instance = Long.toHexString(System.currentTimeMillis());
+
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * the epoch of the last write which touched a closed period
+     */
+    private final AtomicLong closedEpoch = new AtomicLong();
+
+    private final ConcurrentHashMap<String, Result> results = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * the rendered statistics of a period and the epoch they were computed in
+     */
+    public static final class Result {
+
+        private final long fromEpochDay;
+        private final long toEpochDay;
+        private final boolean closed;
+        private final long version;
+
+        private final byte[] body;
+        private final String etag;
+
+        private Result(long fromEpochDay, long toEpochDay, boolean closed, long version, byte[] body, String etag) {
+            this.fromEpochDay = fromEpochDay;
+            this.toEpochDay = toEpochDay;
+            this.closed = closed;
+            this.version = version;
+            this.body = body;
+            this.etag = etag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return the quoted strong ETag of the body
+         */
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+
+    /**
+     * record a stored stock. It must be called after the stock is visible to the statistics,
+     * so a result computed before the call is invalidated by it.
+     *
+     * @param epochDay         the day of the new stock
+     * @param replacedEpochDay the day of the stock it replaced, or {@link AvailabilityIndex#NO_DAY}
+     */
+    public void written(long epochDay, long replacedEpochDay) {
+
+        long version = epoch.incrementAndGet();
+        long today = today();
+
+        if (epochDay < today || (replacedEpochDay != AvailabilityIndex.NO_DAY && replacedEpochDay < today)) {
+            closedEpoch.accumulateAndGet(version, Math::max);
+        }
+    }
+
+
+    /**
+     * invalidate all the results, open and closed, after a bulk change of the state
+     */
+    public void invalidate() {
+
+        long version = epoch.incrementAndGet();
+        closedEpoch.accumulateAndGet(version, Math::max);
+    }
+
+
+    /**
+     * @param range
+     * @param fromEpochDay
+     * @param toEpochDay
+     * @return the valid result of the range for the period, or null if it has to be computed
+     */
+    public Result get(String range, long fromEpochDay, long toEpochDay) {
+
+        Result result = results.get(range);
+
+        boolean closed = toEpochDay < today();
+
+        if (result != null
+                && result.fromEpochDay == fromEpochDay
+                && result.toEpochDay == toEpochDay
+                && result.closed == closed
+                && result.version == version(closed)) {
+
+            hits.incrementAndGet();
+            return result;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+
+    /**
+     * the version has to be read before the statistics are computed, so the writes during
+     * the computation make the result outdated
+     *
+     * @param toEpochDay the last day of the period
+     * @return the version to compute the statistics of the period in
+     */
+    public long version(long toEpochDay) {
+        return version(toEpochDay < today());
+    }
+
+
+    private long version(boolean closed) {
+        return closed ? closedEpoch.get() : epoch.get();
+    }
+
+
+    /**
+     * keep the rendered statistics of the range. A result of an older version never replaces
+     * a newer one.
+     *
+     * @param range
+     * @param fromEpochDay
+     * @param toEpochDay
+     * @param version      the version read before the statistics were computed
+     * @param body
+     * @return the result to respond with
+     */
+    public Result put(String range, long fromEpochDay, long toEpochDay, long version, byte[] body) {
+
+        String etag = "\"" + instance + "-" + range + "-" + fromEpochDay + "-" + toEpochDay + "-" + version + "\"";
+        Result result = new Result(fromEpochDay, toEpochDay, toEpochDay < today(), version, body, etag);
+
+        results.merge(range, result, (older, newer) -> older.fromEpochDay == newer.fromEpochDay
+                && older.toEpochDay == newer.toEpochDay && older.version > newer.version ? older : newer);
+
+        return result;
+    }
+
+
+    /**
+     * @param ifNoneMatch the value of the If-None-Match header, or null
+     * @param etag
+     * @return true if the client already has the representation of the ETag
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String tag : ifNoneMatch.split(",")) {
+
+            String trimmed = tag.trim();
+
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    private static long today() {
+        return Math.floorDiv(System.currentTimeMillis(), MILLIS_PER_DAY);
+    }
+
+
+    public long getEpoch() {
+        return epoch.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,372 @@
+package com.stock.manager.StockManager.util;
+
+import com.stock.manager.StockManager.models.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * A point in time copy of the latest stock of every product and of the sales ledger, stored
+ * in a compact columnar binary file. Every column is a primitive array written one after
+ * another, and the strings are written once and referred by their index:
+ * <pre>
+ *   header   : magic, version, sales log position, creation millis
+ *   strings  : count, (length, UTF-8 bytes) per string
+ *   products : count, product ID[], stock ID[], timestamp[], quantity[]
+ *   sales    : count, product ID[], items sold[], daily bucket count[]
+ *   daily    : count, epoch day[], items sold[]
+ * </pre>
+ * The snapshot is taken in two steps. The state is copied into the columns with {@link
+ * #capture(long, Collection, SalesLedger)} while the updates are stopped, and the columns are
+ * written to the disk with {@link #writeTo(Path)} afterwards, without blocking the updates.
+ * <p>
+ * The sales log position tells which sales are already in the snapshot, the sales appended
+ * to the log after it are replayed on top of the snapshot.
+ */
+public final class StockSnapshot {
+
+
+    private static final int MAGIC = 0x53544b53;
+    private static final int VERSION = 2;
+
+    private final long logPosition;
+    private final long createdAtMillis;
+
+    /**
+     * the strings are only referred while the state is copied, they are de-duplicated into
+     * the dictionary when the snapshot is written
+     */
+    private int productCount;
+    private String[] productIds = new String[16];
+    private String[] stockIds = new String[16];
+    private long[] timestamps = new long[16];
+    private int[] quantities = new int[16];
+
+    private int salesCount;
+    private String[] salesProductIds = new String[16];
+    private long[] itemsSold = new long[16];
+    private int[] dayCounts = new int[16];
+
+    private int dayCount;
+    private int[] days = new int[64];
+    private long[] dayItems = new long[64];
+
+
+    private StockSnapshot(long logPosition, long createdAtMillis) {
+        this.logPosition = logPosition;
+        this.createdAtMillis = createdAtMillis;
+    }
+
+
+    /**
+     * copy the products and the sales into the columns of a new snapshot. The callers have to
+     * stop the updates of the products and the sales, so the copy matches the log position.
+     *
+     * @param logPosition the position of the sales log after the last sale in the ledger
+     * @param products    the latest stock of every product
+     * @param ledger
+     * @return
+     */
+    public static StockSnapshot capture(long logPosition, Collection<Product> products, SalesLedger ledger) {
+
+        StockSnapshot snapshot = new StockSnapshot(logPosition, System.currentTimeMillis());
+
+        for (Product product : products) {
+            snapshot.addProduct(product);
+        }
+
+        for (SalesLedger.ProductSales sales : ledger.products()) {
+            snapshot.addSales(sales);
+        }
+
+        return snapshot;
+    }
+
+
+    private void addProduct(Product product) {
+
+        if (productCount == productIds.length) {
+
+            int capacity = productCount * 2;
+
+            productIds = Arrays.copyOf(productIds, capacity);
+            stockIds = Arrays.copyOf(stockIds, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+
+        productIds[productCount] = product.getProductId();
+        stockIds[productCount] = product.getId();
+        timestamps[productCount] = product.getTimestamp().getTime();
+        quantities[productCount] = product.getQuantity();
+
+        productCount++;
+    }
+
+
+    private void addSales(SalesLedger.ProductSales sales) {
+
+        if (salesCount == salesProductIds.length) {
+
+            int capacity = salesCount * 2;
+
+            salesProductIds = Arrays.copyOf(salesProductIds, capacity);
+            itemsSold = Arrays.copyOf(itemsSold, capacity);
+            dayCounts = Arrays.copyOf(dayCounts, capacity);
+        }
+
+        int daysBefore = dayCount;
+
+        itemsSold[salesCount] = sales.export(this::addDay);
+
+        salesProductIds[salesCount] = sales.getProductId();
+        dayCounts[salesCount] = dayCount - daysBefore;
+
+        salesCount++;
+    }
+
+
+    private void addDay(int day, long items) {
+
+        if (dayCount == days.length) {
+            days = Arrays.copyOf(days, dayCount * 2);
+            dayItems = Arrays.copyOf(dayItems, dayCount * 2);
+        }
+
+        days[dayCount] = day;
+        dayItems[dayCount++] = items;
+    }
+
+
+    /**
+     * write the snapshot to the file. It's written to a temporary file first and moved over
+     * the file once it's on the disk, so a crash never leaves a half written snapshot.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeTo(Path file) throws IOException {
+
+        Path directory = file.toAbsolutePath().getParent();
+
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        StringDictionary strings = new StringDictionary();
+
+        int[] productColumn = encode(strings, productIds, productCount);
+        int[] stockColumn = encode(strings, stockIds, productCount);
+        int[] salesColumn = encode(strings, salesProductIds, salesCount);
+
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logPosition);
+            out.writeLong(createdAtMillis);
+
+            out.writeInt(strings.size());
+
+            for (int i = 0; i < strings.size(); i++) {
+
+                byte[] bytes = strings.valueOf(i).getBytes(StandardCharsets.UTF_8);
+
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(productCount);
+
+            writeInts(out, productColumn, productCount);
+            writeInts(out, stockColumn, productCount);
+            writeLongs(out, timestamps, productCount);
+            writeInts(out, quantities, productCount);
+
+            out.writeInt(salesCount);
+
+            writeInts(out, salesColumn, salesCount);
+            writeLongs(out, itemsSold, salesCount);
+            writeInts(out, dayCounts, salesCount);
+
+            out.writeInt(dayCount);
+
+            writeInts(out, days, dayCount);
+            writeLongs(out, dayItems, dayCount);
+
+            out.flush();
+            stream.getFD().sync();
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * replace the strings of the column with their IDs in the dictionary, null is -1
+     */
+    private static int[] encode(StringDictionary strings, String[] column, int count) {
+
+        int[] ids = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            ids[i] = column[i] == null ? -1 : strings.idOf(column[i]);
+        }
+
+        return ids;
+    }
+
+
+    private static void writeInts(DataOutputStream out, int[] column, int count) throws IOException {
+
+        for (int i = 0; i < count; i++) {
+            out.writeInt(column[i]);
+        }
+    }
+
+
+    private static void writeLongs(DataOutputStream out, long[] column, int count) throws IOException {
+
+        for (int i = 0; i < count; i++) {
+            out.writeLong(column[i]);
+        }
+    }
+
+
+    /**
+     * memory-map the snapshot file and hand its products to the consumer and its sales to
+     * the ledger. The columns are read in bulk from the mapped file.
+     *
+     * @param file
+     * @param products the consumer of the latest stock of every product
+     * @param ledger   the ledger to restore the sales to
+     * @return the sales log position of the snapshot, or -1 if there is no snapshot
+     * @throws IOException if the file is not a snapshot or it's cut short
+     */
+    public static long load(Path file, Consumer<Product> products, SalesLedger ledger) throws IOException {
+
+        if (!Files.exists(file)) {
+            return -1;
+        }
+
+        MappedByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not a stock snapshot: " + file);
+            }
+
+            long logPosition = buffer.getLong();
+            buffer.getLong();
+
+            String[] values = new String[buffer.getInt()];
+
+            for (int i = 0; i < values.length; i++) {
+
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+
+                values[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            int count = buffer.getInt();
+
+            int[] productIds = readInts(buffer, count);
+            int[] stockIds = readInts(buffer, count);
+            long[] timestamps = readLongs(buffer, count);
+            int[] quantities = readInts(buffer, count);
+
+            for (int i = 0; i < count; i++) {
+
+                products.accept(new Product(values[productIds[i]], null,
+                        stockIds[i] < 0 ? null : values[stockIds[i]], new Timestamp(timestamps[i]), quantities[i]));
+            }
+
+            count = buffer.getInt();
+
+            int[] salesProductIds = readInts(buffer, count);
+            long[] itemsSold = readLongs(buffer, count);
+            int[] dayCounts = readInts(buffer, count);
+
+            int[] days = readInts(buffer, buffer.getInt());
+            long[] dayItems = readLongs(buffer, days.length);
+
+            int day = 0;
+
+            for (int i = 0; i < count; i++) {
+
+                SalesLedger.ProductSales sales = ledger.restore(values[salesProductIds[i]], itemsSold[i]);
+
+                for (int end = day + dayCounts[i]; day < end; day++) {
+                    sales.restore(days[day], dayItems[day]);
+                }
+            }
+
+            return logPosition;
+
+        } catch (RuntimeException e) {
+            throw new IOException("the stock snapshot is corrupted: " + file, e);
+        }
+    }
+
+
+    private static int[] readInts(MappedByteBuffer buffer, int count) {
+
+        int[] column = new int[count];
+
+        buffer.asIntBuffer().get(column);
+        buffer.position(buffer.position() + count * 4);
+
+        return column;
+    }
+
+
+    private static long[] readLongs(MappedByteBuffer buffer, int count) {
+
+        long[] column = new long[count];
+
+        buffer.asLongBuffer().get(column);
+        buffer.position(buffer.position() + count * 8);
+
+        return column;
+    }
+
+
+    /**
+     * @return the position of the sales log after the last sale in the snapshot
+     */
+    public long getLogPosition() {
+        return logPosition;
+    }
+
+    public int getProductCount() {
+        return productCount;
+    }
+
+    public int getSalesCount() {
+        return salesCount;
+    }
+}
@@ -0,0 +1,135 @@
+package com.stock.manager.StockManager.util;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * An append-only dictionary which assigns the dense int IDs to the strings in the order
+ * they are first seen, starting from 0. An ID is never re-assigned, so the IDs can be
+ * stored in place of the strings and resolved later. The lookups never lock, only the
+ * assignment of a new ID does.
+ * <p>
+ * The {@link #caseInsensitive()} dictionary assigns the same ID to the strings which only
+ * differ in the case, and it resolves the ID to the string it was first seen as.
+ */
+public class StringDictionary {
+
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private final boolean ignoreCase;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile String[] values = new String[64];
+    private volatile int size;
+
+
+    public StringDictionary() {
+        this(false);
+    }
+
+    private StringDictionary(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+
+    /**
+     * @return a dictionary which matches the strings case-insensitively, the same way the
+     * product IDs are matched by the storage
+     */
+    public static StringDictionary caseInsensitive() {
+        return new StringDictionary(true);
+    }
+
+
+    /**
+     * find the ID of the string, a new ID is assigned if we have not seen it yet
+     *
+     * @param value
+     * @return
+     */
+    public int idOf(String value) {
+
+        String key = keyOf(value);
+        Integer id = ids.get(key);
+
+        if (id != null) {
+            return id;
+        }
+
+        lock.lock();
+
+        try {
+
+            id = ids.get(key);
+
+            if (id != null) {
+                return id;
+            }
+
+            int next = size;
+
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+
+            values[next] = value;
+            size = next + 1;
+
+            /*
+             * the ID is only visible to the other threads after its value is stored
+             * */
+            ids.put(key, next);
+
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * find the ID of the string without assigning a new one
+     *
+     * @param value
+     * @return the ID, or -1 if we have not seen the string
+     */
+    public int find(String value) {
+
+        Integer id = ids.get(keyOf(value));
+        return id == null ? -1 : id;
+    }
+
+
+    private String keyOf(String value) {
+        return ignoreCase ? value.toLowerCase(Locale.ROOT) : value;
+    }
+
+
+    /**
+     * @param id
+     * @return the string of the ID
+     * @throws IndexOutOfBoundsException if the ID is not assigned
+     */
+    public String valueOf(int id) {
+
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("unknown dictionary ID " + id);
+        }
+
+        return values[id];
+    }
+
+
+    /**
+     * @return the number of strings in the dictionary, which is also the next ID
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,298 @@
+package com.stock.manager.StockManager.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Created by Chaklader on 2026-10-18.
+ * <p>
+ * A fixed number of locks the product IDs are hashed onto. The updates of the same product
+ * always take the same lock and are applied one after another, while the updates of the
+ * products on the different stripes proceed in parallel. We keep the number of acquisitions,
+ * the number of times a thread had to wait and the total waiting time for each stripe.
+ */
+public class StripedLock {
+
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    private final AtomicLongArray acquisitions;
+    private final AtomicLongArray contentions;
+    private final AtomicLongArray waitNanos;
+
+
+    /**
+     * @param stripes the number of locks, rounded up to a power of two
+     */
+    public StripedLock(int stripes) {
+
+        int size = 1;
+
+        while (size < stripes) {
+            size <<= 1;
+        }
+
+        locks = new ReentrantLock[size];
+        mask = size - 1;
+
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+
+        acquisitions = new AtomicLongArray(size);
+        contentions = new AtomicLongArray(size);
+        waitNanos = new AtomicLongArray(size);
+    }
+
+
+    /**
+     * find the stripe of the product, the product IDs are matched case-insensitively
+     *
+     * @param productId
+     * @return
+     */
+    public int stripeFor(String productId) {
+
+        return spread(productId.toLowerCase(Locale.ROOT).hashCode());
+    }
+
+
+    /**
+     * find the stripe of the product by its dictionary ID. A product must either always be
+     * locked by its ID or always by its product ID, the two map to the different stripes.
+     *
+     * @param id
+     * @return
+     */
+    public int stripeFor(int id) {
+        return spread(id);
+    }
+
+
+    private int spread(int h) {
+
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        h ^= (h >>> 16);
+
+        return h & mask;
+    }
+
+
+    /**
+     * acquire the lock of the stripe and record the time we waited for it
+     *
+     * @param stripe
+     */
+    public void lock(int stripe) {
+
+        ReentrantLock lock = locks[stripe];
+
+        if (!lock.tryLock()) {
+
+            long start = System.nanoTime();
+            lock.lock();
+
+            waitNanos.addAndGet(stripe, System.nanoTime() - start);
+            contentions.incrementAndGet(stripe);
+        }
+
+        acquisitions.incrementAndGet(stripe);
+    }
+
+
+    public void unlock(int stripe) {
+        locks[stripe].unlock();
+    }
+
+
+    /**
+     * acquire the locks of all the stripes of the products. The stripes are taken in the
+     * ascending order, so two threads locking the overlapping sets never deadlock.
+     *
+     * @param productIds
+     * @return the stripes we hold, to be passed to {@link #unlockAll(int[])}
+     */
+    public int[] lockAll(Collection<String> productIds) {
+
+        boolean[] needed = new boolean[locks.length];
+
+        for (String productId : productIds) {
+            needed[stripeFor(productId)] = true;
+        }
+
+        return lockAll(needed);
+    }
+
+
+    /**
+     * acquire the locks of all the stripes of the products by their dictionary IDs, in the
+     * ascending order of the stripes
+     *
+     * @param ids
+     * @return the stripes we hold, to be passed to {@link #unlockAll(int[])}
+     */
+    public int[] lockAll(int[] ids) {
+
+        boolean[] needed = new boolean[locks.length];
+
+        for (int id : ids) {
+            needed[stripeFor(id)] = true;
+        }
+
+        return lockAll(needed);
+    }
+
+
+    private int[] lockAll(boolean[] needed) {
+
+        int count = 0;
+
+        for (boolean n : needed) {
+            if (n) {
+                count++;
+            }
+        }
+
+        int[] stripes = new int[count];
+        int j = 0;
+
+        for (int i = 0; i < needed.length; i++) {
+            if (needed[i]) {
+                stripes[j++] = i;
+            }
+        }
+
+        for (int i = 0; i < stripes.length; i++) {
+
+            try {
+                lock(stripes[i]);
+            } catch (RuntimeException e) {
+                unlockAll(Arrays.copyOf(stripes, i));
+                throw e;
+            }
+        }
+
+        return stripes;
+    }
+
+
+    /**
+     * acquire the locks of all the stripes, which stops all the updates until the
+     * {@link #unlockAll(int[])}
+     *
+     * @return the stripes we hold
+     */
+    public int[] lockAll() {
+
+        int[] stripes = new int[locks.length];
+
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = i;
+        }
+
+        for (int i = 0; i < stripes.length; i++) {
+
+            try {
+                lock(i);
+            } catch (RuntimeException e) {
+                unlockAll(Arrays.copyOf(stripes, i));
+                throw e;
+            }
+        }
+
+        return stripes;
+    }
+
+
+    /**
+     * release the locks in the reverse order of the acquisition
+     *
+     * @param stripes
+     */
+    public void unlockAll(int[] stripes) {
+
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            unlock(stripes[i]);
+        }
+    }
+
+
+    public int getStripeCount() {
+        return locks.length;
+    }
+
+    /**
+     * @return the number of times the lock of the stripe was acquired
+     */
+    public long getAcquisitions(int stripe) {
+        return acquisitions.get(stripe);
+    }
+
+    /**
+     * @return the number of times a thread had to wait for the lock of the stripe
+     */
+    public long getContentions(int stripe) {
+        return contentions.get(stripe);
+    }
+
+    /**
+     * @return the total time in nanos the threads waited for the lock of the stripe
+     */
+    public long getWaitNanos(int stripe) {
+        return waitNanos.get(stripe);
+    }
+
+    /**
+     * @return the number of times the locks of all the stripes were acquired
+     */
+    public long getAcquisitions() {
+
+        long count = 0;
+
+        for (int i = 0; i < locks.length; i++) {
+            count += acquisitions.get(i);
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the number of times a thread had to wait for the lock of any stripe
+     */
+    public long getContentions() {
+
+        long count = 0;
+
+        for (int i = 0; i < locks.length; i++) {
+            count += contentions.get(i);
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the total time in nanos the threads waited for the locks of all the stripes
+     */
+    public long getWaitNanos() {
+
+        long nanos = 0;
+
+        for (int i = 0; i < locks.length; i++) {
+            nanos += waitNanos.get(i);
+        }
+
+        return nanos;
+    }
+
+    /**
+     * @return the number of threads waiting for the lock of the stripe right now
+     */
+    public int getQueueLength(int stripe) {
+        return locks[stripe].getQueueLength();
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2017 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Modified by Chaklader on 2026-10-18: the wheel keeps its own nodes instead of the
+ * entries of a cache, and the expired nodes are handed to the caller in a list.
+ */
+package com.stock.manager.StockManager.util;
+
+import java.util.List;
+
+/**
+ * Derived from the TimerWheel of Caffeine (https://github.com/ben-manes/caffeine).
+ * <p>
+ * A hierarchical timer wheel that keeps the nodes in the buckets of their expiry time.
+ * The lowest wheel has buckets of ~1 second, and every wheel above it has buckets as
+ * wide as the whole wheel below, up to a single overflow bucket for the expiries more
+ * than ~6 days away. Scheduling, rescheduling and descheduling a node is an unlink and
+ * a link in a doubly-linked list, hence, O(1).
+ * <p>
+ * When the time advances, only the buckets the time has passed over are visited. The
+ * expired nodes are handed to the caller and the rest cascade down to a finer wheel,
+ * so every node is visited a small constant number of times before it expires.
+ * <p>
+ * The wheel is not thread-safe, the owner is expected to guard it with its own lock.
+ */
+public class TimerWheel<K> {
+
+
+    /**
+     * the number of buckets in each wheel, always a power of two
+     */
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+
+    /**
+     * the duration of a bucket in each wheel as a power of two of the millis:
+     * 1.02s, 1.09m, 1.17h, 1.55d and 6.21d. The last span is repeated to cap
+     * the search for the wheel of a node.
+     */
+    private static final int[] SHIFT = {10, 16, 22, 27, 29};
+    private static final long[] SPANS = {1L << 10, 1L << 16, 1L << 22, 1L << 27, 1L << 29, 1L << 29};
+
+    private final Node<K>[][] wheel;
+
+    /**
+     * the time in millis the wheel has advanced to
+     */
+    private long time;
+
+
+    /**
+     * the element of the wheel. The owner extends it with its own data, the links are
+     * only touched by the wheel and are null while the node isn't scheduled.
+     */
+    public static class Node<K> {
+
+        protected final K key;
+
+        long expiresAt;
+
+        Node<K> prev;
+        Node<K> next;
+
+        protected Node(K key) {
+            this.key = key;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        boolean isScheduled() {
+            return next != null;
+        }
+    }
+
+
+    /**
+     * @param now the current time in millis to start the wheel from
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long now) {
+
+        this.time = now;
+        this.wheel = (Node<K>[][]) new Node<?>[BUCKETS.length][];
+
+        for (int i = 0; i < wheel.length; i++) {
+
+            wheel[i] = (Node<K>[]) new Node<?>[BUCKETS[i]];
+
+            for (int j = 0; j < wheel[i].length; j++) {
+
+                Node<K> sentinel = new Node<>(null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+
+                wheel[i][j] = sentinel;
+            }
+        }
+    }
+
+
+    /**
+     * schedule the node to expire at the given time. If the node is already scheduled,
+     * it's moved to the bucket of the new expiry time.
+     *
+     * @param node
+     * @param expiresAt the expiry time in millis
+     */
+    public void schedule(Node<K> node, long expiresAt) {
+
+        if (node.isScheduled()) {
+            unlink(node);
+        }
+
+        node.expiresAt = expiresAt;
+        link(findBucket(expiresAt), node);
+    }
+
+
+    /**
+     * remove the node from the wheel if it's scheduled
+     *
+     * @param node
+     */
+    public void deschedule(Node<K> node) {
+
+        if (node.isScheduled()) {
+            unlink(node);
+        }
+    }
+
+
+    /**
+     * advance the wheel to the current time and collect the nodes which expired on the
+     * way. The expired nodes are removed from the wheel before they are handed out.
+     *
+     * @param now     the current time in millis
+     * @param expired the list to collect the expired nodes into
+     */
+    public void advance(long now, List<Node<K>> expired) {
+
+        long previous = time;
+
+        /*
+         * the clock went backwards, we wait for it to catch up
+         * */
+        if (now <= previous) {
+            return;
+        }
+
+        time = now;
+
+        for (int i = 0; i < SHIFT.length; i++) {
+
+            long previousTicks = previous >>> SHIFT[i];
+            long currentTicks = now >>> SHIFT[i];
+
+            long delta = currentTicks - previousTicks;
+
+            /*
+             * the time hasn't passed over a bucket of this wheel, hence,
+             * it hasn't passed over the coarser wheels either
+             * */
+            if (delta <= 0) {
+                break;
+            }
+
+            expire(i, previousTicks, delta, expired);
+        }
+    }
+
+
+    /**
+     * empty the buckets of the wheel the time has passed over. The nodes which
+     * are not expired yet are scheduled again into a finer wheel.
+     */
+    private void expire(int index, long previousTicks, long delta, List<Node<K>> expired) {
+
+        Node<K>[] timerWheel = wheel[index];
+
+        int mask = timerWheel.length - 1;
+        int steps = (int) Math.min(1 + delta, timerWheel.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+
+        for (int i = start; i < end; i++) {
+
+            Node<K> sentinel = timerWheel[i & mask];
+            Node<K> node = sentinel.next;
+
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+
+            while (node != sentinel) {
+
+                Node<K> next = node.next;
+
+                node.prev = null;
+                node.next = null;
+
+                if (node.expiresAt > time) {
+                    link(findBucket(node.expiresAt), node);
+                } else {
+                    expired.add(node);
+                }
+
+                node = next;
+            }
+        }
+    }
+
+
+    /**
+     * find the bucket of the expiry time, the closer the time is, the finer is the wheel
+     */
+    private Node<K> findBucket(long expiresAt) {
+
+        long duration = expiresAt - time;
+        int length = wheel.length - 1;
+
+        for (int i = 0; i < length; i++) {
+
+            if (duration < SPANS[i + 1]) {
+
+                long ticks = (expiresAt >>> SHIFT[i]);
+                int index = (int) (ticks & (wheel[i].length - 1));
+
+                return wheel[i][index];
+            }
+        }
+
+        return wheel[length][0];
+    }
+
+
+    private void link(Node<K> sentinel, Node<K> node) {
+
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+
+    private void unlink(Node<K> node) {
+
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+
+        node.prev = null;
+        node.next = null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.stock.manager.StockManager.api;
+
+import com.stock.manager.StockManager.models.Product;
+import com.stock.manager.StockManager.repository.SaleDelta;
+import com.stock.manager.StockManager.service.ProductService;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ProductAPITest {
+
+	@Autowired
+	private ProductAPI api;
+
+	@Autowired
+	private ProductService service;
+
+	private static long millis(LocalDate date, int hour) {
+		return date.atStartOfDay(ZoneOffset.UTC).plusHours(hour).toInstant().toEpochMilli();
+	}
+
+	@Test
+	public void lastMonthIsReadFromTheRollupsAfterARestartWithAnEmptyLedger() throws JSONException {
+
+		LocalDate lastMonth = LocalDate.now(ZoneOffset.UTC).minusMonths(1).withDayOfMonth(1);
+
+		api.createProduct(new Product("Product ID31", null, "Stock ID", new Timestamp(millis(lastMonth, 6)), 100));
+		api.createProduct(new Product("Product ID32", null, "Stock ID", new Timestamp(millis(lastMonth, 6)), 100));
+
+		/*
+		 * the sales of the previous run are only in the rollups of the storage
+		 * */
+		service.saveSales(Arrays.asList(
+				new SaleDelta("Product ID31", millis(lastMonth, 7), 40),
+				new SaleDelta("Product ID32", millis(lastMonth.plusDays(9), 7), 25),
+				new SaleDelta("Product ID31", millis(lastMonth.plusDays(20), 7), 30)));
+
+		assertFalse(api.salesRestored);
+		assertEquals(0L, api.sales.get("Product ID31"));
+
+		byte[] body = (byte[]) api.getStockStatistics("lastMonth", null, null, 2, null).getBody();
+		JSONArray topSelling = new JSONObject(new String(body, StandardCharsets.UTF_8)).getJSONArray("topSellingProducts").getJSONArray(0);
+
+		assertEquals(2, topSelling.length());
+		assertEquals("Product ID31", topSelling.getJSONObject(0).getString("productId"));
+		assertEquals(70L, topSelling.getJSONObject(0).getLong("itemsSold"));
+		assertEquals("Product ID32", topSelling.getJSONObject(1).getString("productId"));
+		assertEquals(25L, topSelling.getJSONObject(1).getLong("itemsSold"));
+	}
+}
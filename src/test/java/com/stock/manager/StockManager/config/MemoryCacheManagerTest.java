@@ -0,0 +1,38 @@
+package com.stock.manager.StockManager.config;
+
+import com.stock.manager.StockManager.util.EvictionPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class MemoryCacheManagerTest {
+
+	@Test
+	public void theCachesArePublishedAlsoWhenTheyAreCreatedAfterTheBinding() {
+
+		MemoryCacheManager manager = new MemoryCacheManager(600, 0, 100, EvictionPolicy.LRU);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+		manager.getCache("early").put("a", 1);
+		manager.bindTo(registry);
+
+		MemoryCacheAdapter late = manager.getCache("late");
+
+		late.put("b", 2);
+		late.get("b");
+		late.get("c");
+		late.getNativeCache().cleanup();
+
+		assertEquals(1.0, registry.get("cache.size").tag("cache", "early").gauge().value(), 0);
+		assertEquals(1.0, registry.get("cache.size").tag("cache", "late").gauge().value(), 0);
+
+		assertEquals(1.0, registry.get("cache.gets").tags("cache", "late", "result", "hit").functionCounter().count(), 0);
+		assertEquals(1.0, registry.get("cache.gets").tags("cache", "late", "result", "miss").functionCounter().count(), 0);
+
+		assertEquals(1.0, registry.get("cache.cleanups").tag("cache", "late").functionTimer().count(), 0);
+		assertEquals(0.0, registry.get("cache.lock.waits").tag("cache", "late").functionTimer().totalTime(TimeUnit.NANOSECONDS), 0);
+	}
+}
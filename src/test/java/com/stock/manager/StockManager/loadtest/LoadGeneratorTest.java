@@ -0,0 +1,53 @@
+package com.stock.manager.StockManager.loadtest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class LoadGeneratorTest {
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	public void theLoadIsRecordedPerEndPointWithoutErrors() throws Exception {
+
+		LoadGenerator generator = new LoadGenerator();
+
+		generator.products = 200;
+		generator.rate = 200;
+		generator.connections = 4;
+		generator.writeRatio = 0.4;
+		generator.statisticsRatio = 0.2;
+		generator.warmupSeconds = 0;
+		generator.durationSeconds = 1;
+
+		List<LoadGenerator.Result> results = generator.run("http://localhost:" + port);
+
+		assertEquals(LoadGenerator.Operation.values().length, results.size());
+
+		long requests = 0;
+
+		for (LoadGenerator.Result result : results) {
+
+			assertEquals(0, result.getErrors());
+			assertTrue(result.getCount() > 0);
+
+			requests += result.getCount();
+		}
+
+		/*
+		 * every scheduled request is recorded, even if it's done late
+		 * */
+		assertEquals(200, requests);
+	}
+}
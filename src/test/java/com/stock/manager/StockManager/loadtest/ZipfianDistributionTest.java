@@ -0,0 +1,45 @@
+package com.stock.manager.StockManager.loadtest;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ZipfianDistributionTest {
+
+	@Test
+	public void theExponentOfZeroIsUniform() {
+
+		ZipfianDistribution distribution = new ZipfianDistribution(4, 0);
+
+		assertEquals(0, distribution.rankOf(0.0));
+		assertEquals(0, distribution.rankOf(0.2499));
+		assertEquals(1, distribution.rankOf(0.25));
+		assertEquals(3, distribution.rankOf(0.9999));
+		assertEquals(0.25, distribution.probability(2), 1e-9);
+	}
+
+	@Test
+	public void theFirstRanksAreTheHotOnes() {
+
+		ZipfianDistribution distribution = new ZipfianDistribution(1000, 1.0);
+
+		/*
+		 * the probability of the rank k is the one of the first rank divided by k + 1
+		 * */
+		assertEquals(distribution.probability(0) / 10, distribution.probability(9), 1e-9);
+
+		SplittableRandom random = new SplittableRandom(7);
+		int[] counts = new int[1000];
+
+		for (int i = 0; i < 100_000; i++) {
+			counts[distribution.sample(random)]++;
+		}
+
+		assertEquals(distribution.probability(0) * 100_000, counts[0], 1000);
+		assertTrue(counts[0] > 5 * counts[9]);
+		assertTrue(counts[9] > counts[999]);
+	}
+}
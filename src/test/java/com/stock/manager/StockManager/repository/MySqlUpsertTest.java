@@ -0,0 +1,128 @@
+package com.stock.manager.StockManager.repository;
+
+import com.stock.manager.StockManager.models.Product;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The native upserts of the repositories on a MySQL server, they are skipped where Docker is
+ * not available.
+ */
+public class MySqlUpsertTest {
+
+	private static MySQLContainer<?> mysql;
+
+	@BeforeClass
+	public static void startMySql() throws SQLException {
+
+		Assume.assumeTrue("Docker is not available", DockerClientFactory.instance().isDockerAvailable());
+
+		mysql = new MySQLContainer<>("mysql:8.0.36");
+		mysql.start();
+
+		try (Connection connection = connect(""); Statement statement = connection.createStatement()) {
+
+			statement.execute("CREATE TABLE product (product_id VARCHAR(255) PRIMARY KEY, stock_id VARCHAR(255), " +
+					"stock_timestamp DATETIME(6), quantity INT NOT NULL)");
+			statement.execute("CREATE TABLE product_sales_daily (product_id VARCHAR(255), epoch_day BIGINT, " +
+					"items_sold BIGINT NOT NULL, PRIMARY KEY (product_id, epoch_day))");
+		}
+	}
+
+	@AfterClass
+	public static void stopMySql() {
+
+		if (mysql != null) {
+			mysql.stop();
+		}
+	}
+
+	private static Connection connect(String parameters) throws SQLException {
+		return DriverManager.getConnection(mysql.getJdbcUrl() + parameters, mysql.getUsername(), mysql.getPassword());
+	}
+
+	private static Product product(String timestamp, int quantity) {
+		return new Product("Product ID1", null, "Stock ID", Timestamp.from(Instant.parse(timestamp)), quantity);
+	}
+
+	@Test
+	public void upsertReportsTheOutcomeAndThePreviousQuantity() throws SQLException {
+
+		ProductRepositoryImpl repository = new ProductRepositoryImpl();
+
+		try (Connection connection = connect("")) {
+
+			StockUpsert inserted = repository.upsertIfNewer(connection, product("2026-10-18T06:00:00Z", 100));
+			StockUpsert updated = repository.upsertIfNewer(connection, product("2026-10-18T07:00:00Z", 90));
+			StockUpsert outdated = repository.upsertIfNewer(connection, product("2026-10-18T06:30:00Z", 50));
+
+			assertEquals(StockUpsert.Outcome.INSERTED, inserted.getOutcome());
+			assertEquals(StockUpsert.Outcome.UPDATED, updated.getOutcome());
+			assertEquals(100, updated.getPreviousQuantity());
+			assertEquals(StockUpsert.Outcome.OUTDATED, outdated.getOutcome());
+			assertEquals(90, outdated.getPreviousQuantity());
+
+			try (Statement statement = connection.createStatement();
+				 ResultSet row = statement.executeQuery("SELECT quantity, stock_timestamp FROM product")) {
+
+				assertTrue(row.next());
+				assertEquals(90, row.getInt(1));
+				assertEquals(Timestamp.from(Instant.parse("2026-10-18T07:00:00Z")), row.getTimestamp(2));
+			}
+		}
+	}
+
+	@Test
+	public void upsertRefusesTheConnectionsWhichOnlyCountTheChangedRows() throws SQLException {
+
+		ProductRepositoryImpl repository = new ProductRepositoryImpl();
+
+		try (Connection connection = connect("?useAffectedRows=true")) {
+
+			repository.upsertIfNewer(connection, product("2026-10-18T08:00:00Z", 80));
+
+			try {
+				repository.upsertIfNewer(connection, product("2026-10-18T05:00:00Z", 10));
+				fail("an outdated stock must not be taken for an insert");
+			} catch (IllegalStateException expected) {
+			}
+		}
+	}
+
+	@Test
+	public void rollupsAreIncremented() throws SQLException {
+
+		SalesRollupRepository rollup = new SalesRollupRepository();
+		long millis = Instant.parse("2026-10-18T06:05:00Z").toEpochMilli();
+
+		try (Connection connection = connect("")) {
+
+			rollup.add(connection, Arrays.asList(new SaleDelta("Product ID1", millis, 10), new SaleDelta("Product ID1", millis, 5)));
+			rollup.add(connection, Arrays.asList(new SaleDelta("Product ID1", millis, 7)));
+
+			try (Statement statement = connection.createStatement();
+				 ResultSet row = statement.executeQuery("SELECT items_sold FROM product_sales_daily")) {
+
+				assertTrue(row.next());
+				assertEquals(22, row.getLong(1));
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.stock.manager.StockManager.repository;
+
+import com.stock.manager.StockManager.models.Product;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class ProductRepositoryTest {
+
+	@Autowired
+	private ProductRepository repository;
+
+	private static Product product(String timestamp, int quantity) {
+		return new Product("Product ID", null, "Stock ID", Timestamp.from(Instant.parse(timestamp)), quantity);
+	}
+
+	@Test
+	public void newerStocksAreStoredAndReturnThePreviousQuantity() {
+
+		StockUpsert first = repository.upsertIfNewer(product("2026-10-18T06:05:00Z", 500));
+
+		assertEquals(StockUpsert.Outcome.INSERTED, first.getOutcome());
+
+		StockUpsert second = repository.upsertIfNewer(product("2026-10-18T06:10:00Z", 300));
+
+		assertEquals(StockUpsert.Outcome.UPDATED, second.getOutcome());
+		assertEquals(500, second.getPreviousQuantity());
+
+		assertEquals(300, repository.findById("Product ID").get().getQuantity());
+	}
+
+	@Test
+	public void outdatedStocksAreNotStored() {
+
+		repository.upsertIfNewer(product("2026-10-18T06:10:00Z", 300));
+
+		StockUpsert outdated = repository.upsertIfNewer(product("2026-10-18T06:05:00Z", 500));
+
+		assertFalse(outdated.isStored());
+		assertEquals(300, outdated.getPreviousQuantity());
+
+		Product stored = repository.findById("Product ID").get();
+
+		assertEquals(300, stored.getQuantity());
+		assertEquals(Timestamp.from(Instant.parse("2026-10-18T06:10:00Z")), stored.getTimestamp());
+	}
+
+	@Test
+	public void stocksAsNewAsTheStoredOneOverrideIt() {
+
+		repository.upsertIfNewer(product("2026-10-18T06:10:00Z", 300));
+
+		StockUpsert same = repository.upsertIfNewer(product("2026-10-18T06:10:00Z", 250));
+
+		assertTrue(same.isStored());
+		assertEquals(300, same.getPreviousQuantity());
+	}
+}
@@ -0,0 +1,74 @@
+package com.stock.manager.StockManager.repository;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(SalesRollupRepository.class)
+public class SalesRollupRepositoryTest {
+
+	@Autowired
+	private SalesRollupRepository rollup;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private static SaleDelta sale(String productId, String timestamp, long items) {
+		return new SaleDelta(productId, Instant.parse(timestamp).toEpochMilli(), items);
+	}
+
+	private static long day(String date) {
+		return LocalDate.parse(date).toEpochDay();
+	}
+
+	@Test
+	public void salesAreIncrementedIntoTheRowsOfTheirDay() {
+
+		rollup.add(Arrays.asList(
+				sale("Product ID1", "2026-10-18T06:05:00Z", 10),
+				sale("product id1", "2026-10-18T06:55:00Z", 5)));
+
+		rollup.add(Arrays.asList(
+				sale("PRODUCT ID1", "2026-10-18T07:10:00Z", 1),
+				sale("Product ID2", "2026-10-17T23:10:00Z", 7)));
+
+		assertEquals(Long.valueOf(2), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_sales_daily", Long.class));
+
+		assertEquals(Long.valueOf(16), jdbcTemplate.queryForObject(
+				"SELECT items_sold FROM product_sales_daily WHERE product_id = 'product id1'", Long.class));
+	}
+
+	@Test
+	public void rangesAreSummedFromTheDailyRollups() {
+
+		rollup.add(Arrays.asList(
+				sale("Product ID1", "2026-10-16T12:00:00Z", 100),
+				sale("Product ID1", "2026-10-17T06:00:00Z", 10),
+				sale("Product ID2", "2026-10-17T18:00:00Z", 30),
+				sale("Product ID2", "2026-10-18T02:30:00Z", 5),
+				sale("Product ID3", "2026-10-18T09:00:00Z", 50)));
+
+		Map<String, Long> days = rollup.topSelling(day("2026-10-17"), day("2026-10-18"), 2);
+
+		assertEquals(Arrays.asList("product id3", "product id2"), Arrays.asList(days.keySet().toArray()));
+		assertEquals(Long.valueOf(35), days.get("product id2"));
+
+		Map<String, Long> oneDay = rollup.topSelling(day("2026-10-16"), day("2026-10-16"), 3);
+
+		assertEquals(1, oneDay.size());
+		assertEquals(Long.valueOf(100), oneDay.get("product id1"));
+	}
+}
@@ -0,0 +1,99 @@
+package com.stock.manager.StockManager.service;
+
+import com.stock.manager.StockManager.config.MemoryCacheManager;
+import com.stock.manager.StockManager.models.Product;
+import com.stock.manager.StockManager.repository.ProductRepository;
+import com.stock.manager.StockManager.util.ConcurrentMemoryCache;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ProductServiceTest {
+
+	@Autowired
+	private ProductService service;
+
+	@Autowired
+	private ProductRepository repository;
+
+	@Autowired
+	private MemoryCacheManager cacheManager;
+
+	private ConcurrentMemoryCache<Object, Object> cache;
+
+	@Before
+	public void setUp() {
+
+		service.deleteAll();
+		cache = cacheManager.getCache(ProductService.PRODUCT_CACHE).getNativeCache();
+	}
+
+	private static Product product(String productId, String timestamp, int quantity) {
+		return new Product(productId, null, "Stock ID", Timestamp.from(Instant.parse(timestamp)), quantity);
+	}
+
+	@Test
+	public void storedStocksAreWrittenThroughToTheCache() {
+
+		service.saveIfNewer(product("Product ID1", "2026-10-18T06:05:00Z", 500));
+
+		/*
+		 * the row is changed behind the back of the cache, so a read of the storage would see it
+		 * */
+		repository.save(product("Product ID1", "2026-10-18T06:10:00Z", 1));
+
+		long hits = cache.getHitCount();
+
+		assertEquals(500, service.findById("product id1").get().getQuantity());
+		assertEquals(hits + 1, cache.getHitCount());
+
+		service.saveAll(Collections.emptyList(), Collections.singletonList(product("Product ID1", "2026-10-18T06:15:00Z", 400)));
+
+		assertEquals(400, service.findById("PRODUCT ID1").get().getQuantity());
+	}
+
+	@Test
+	public void missedProductsAreReadThroughOnce() {
+
+		repository.save(product("Product ID2", "2026-10-18T06:05:00Z", 350));
+
+		long misses = cache.getMissCount();
+
+		assertEquals(350, service.findById("Product ID2").get().getQuantity());
+		assertEquals(350, service.findById("Product ID2").get().getQuantity());
+
+		assertEquals(misses + 1, cache.getMissCount());
+	}
+
+	@Test
+	public void absentProductsAreCachedUntilTheyAreStored() {
+
+		assertFalse(service.findById("Product ID3").isPresent());
+		assertFalse(service.findById("Product ID3").isPresent());
+
+		service.saveIfNewer(product("Product ID3", "2026-10-18T06:05:00Z", 70));
+
+		assertEquals(70, service.findById("Product ID3").get().getQuantity());
+	}
+
+	@Test
+	public void deleteAllEvictsTheCachedProducts() {
+
+		service.save(product("Product ID4", "2026-10-18T06:05:00Z", 90));
+		service.deleteAll();
+
+		assertFalse(service.findById("Product ID4").isPresent());
+	}
+}
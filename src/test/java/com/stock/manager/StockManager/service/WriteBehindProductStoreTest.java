@@ -0,0 +1,171 @@
+package com.stock.manager.StockManager.service;
+
+import com.stock.manager.StockManager.models.Product;
+import com.stock.manager.StockManager.repository.SaleDelta;
+import com.stock.manager.StockManager.repository.StockUpsert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class WriteBehindProductStoreTest {
+
+	private final List<Product> inserted = new ArrayList<>();
+	private final List<Product> updated = new ArrayList<>();
+	private final List<SaleDelta> sales = new ArrayList<>();
+
+	/*
+	 * the batches fail, and so do the single upserts of this product
+	 * */
+	private boolean failBatches;
+	private String failingProduct;
+
+	private WriteBehindProductStore store;
+
+	@Before
+	public void setUp() {
+
+		store = new WriteBehindProductStore();
+
+		store.flushIntervalMillis = 60 * 60 * 1000L;
+		store.flushSize = 100;
+
+		store.setService(new ProductService() {
+
+			@Override
+			public List<Product> findAll() {
+				return Collections.singletonList(product("Product ID1", "2026-10-18T06:00:00Z", 100));
+			}
+
+			@Override
+			public void saveAll(Collection<Product> inserts, Collection<Product> updates) {
+
+				if (failBatches) {
+					throw new IllegalStateException("the batch failed");
+				}
+
+				inserted.addAll(inserts);
+				updated.addAll(updates);
+			}
+
+			@Override
+			public StockUpsert saveIfNewer(Product product, boolean rollUpSale) {
+
+				if (product.getProductId().equals(failingProduct)) {
+					throw new IllegalStateException("the upsert failed");
+				}
+
+				updated.add(product);
+				return StockUpsert.updated(0);
+			}
+
+			@Override
+			public void saveSales(Collection<SaleDelta> deltas) {
+				sales.addAll(deltas);
+			}
+		});
+
+		store.start();
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		store.stop();
+	}
+
+	private static Product product(String productId, String timestamp, int quantity) {
+		return new Product(productId, null, "Stock ID", Timestamp.from(Instant.parse(timestamp)), quantity);
+	}
+
+	@Test
+	public void updatesOfAProductAreCoalescedIntoTheLatestStock() {
+
+		assertEquals(StockUpsert.Outcome.UPDATED, store.saveIfNewer(product("Product ID1", "2026-10-18T06:05:00Z", 90)).getOutcome());
+		assertEquals(StockUpsert.Outcome.UPDATED, store.saveIfNewer(product("product id1", "2026-10-18T06:10:00Z", 80)).getOutcome());
+		assertEquals(StockUpsert.Outcome.INSERTED, store.saveIfNewer(product("Product ID2", "2026-10-18T06:10:00Z", 50)).getOutcome());
+
+		assertEquals(2, store.getQueueDepth());
+		assertEquals(1, store.getCoalescedUpdates());
+
+		store.flush();
+
+		assertEquals(0, store.getQueueDepth());
+
+		assertEquals(1, updated.size());
+		assertEquals(80, updated.get(0).getQuantity());
+
+		assertEquals(1, inserted.size());
+		assertEquals("Product ID2", inserted.get(0).getProductId());
+
+		/*
+		 * the sales of the coalesced updates are all kept
+		 * */
+		assertEquals(2, sales.size());
+		assertEquals(10, sales.get(0).getItems());
+		assertEquals(10, sales.get(1).getItems());
+
+		/*
+		 * the inserted product is updated by the next flush
+		 * */
+		store.saveIfNewer(product("Product ID2", "2026-10-18T06:15:00Z", 40));
+		store.flush();
+
+		assertEquals(1, inserted.size());
+		assertEquals(2, updated.size());
+		assertEquals(3, sales.size());
+	}
+
+	@Test
+	public void outdatedStocksAreNotScheduledForTheFlush() {
+
+		StockUpsert outdated = store.saveIfNewer(product("Product ID1", "2026-10-18T05:00:00Z", 10));
+
+		assertFalse(outdated.isStored());
+		assertEquals(100, outdated.getPreviousQuantity());
+
+		assertEquals(0, store.getQueueDepth());
+		assertEquals(100, store.findById("PRODUCT ID1").get().getQuantity());
+	}
+
+	@Test
+	public void onlyTheStoredProductsAreCountedAsFlushed() {
+
+		failBatches = true;
+		failingProduct = "Product ID3";
+
+		store.saveIfNewer(product("Product ID2", "2026-10-18T06:10:00Z", 50));
+		store.saveIfNewer(product("Product ID3", "2026-10-18T06:10:00Z", 50));
+
+		store.flush();
+
+		assertEquals(1, store.getFlushedProducts());
+		assertEquals(1, store.getFailedFlushes());
+
+		/*
+		 * the product which could not be stored waits for the next flush
+		 * */
+		assertEquals(1, store.getQueueDepth());
+
+		failBatches = false;
+		failingProduct = null;
+	}
+
+	@Test
+	public void updatesAfterTheStopDoNotFail() throws InterruptedException {
+
+		store.stop();
+
+		for (int i = 0; i < 2 * store.flushSize; i++) {
+			assertEquals(StockUpsert.Outcome.INSERTED, store.saveIfNewer(product("Product " + i, "2026-10-18T06:10:00Z", 50)).getOutcome());
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.stock.manager.StockManager.util;
+
+import com.stock.manager.StockManager.models.Product;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AvailabilityIndexTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+	private static Product product(String productId, LocalDate day, int minute, int quantity) {
+
+		Timestamp timestamp = new Timestamp(day.atStartOfDay(ZoneOffset.UTC).plusMinutes(minute).toInstant().toEpochMilli());
+		return new Product(productId, null, "Stock ID", timestamp, quantity);
+	}
+
+	@Test
+	public void topAvailableProductsAreMergedOverTheDaysOfTheRange() {
+
+		AvailabilityIndex index = new AvailabilityIndex();
+
+		index.update(product("Product ID1", TODAY, 1, 500));
+		index.update(product("Product ID2", TODAY, 1, 700));
+		index.update(product("Product ID3", TODAY.minusDays(1), 1, 900));
+		index.update(product("Product ID4", TODAY.minusDays(2), 1, 100));
+		index.update(product("Product ID5", TODAY.minusDays(40), 1, 10_000));
+
+		List<Product> top = index.topAvailable(TODAY.minusDays(2).toEpochDay(), TODAY.toEpochDay(), 3);
+
+		assertEquals(3, top.size());
+		assertEquals("Product ID3", top.get(0).getProductId());
+		assertEquals("Product ID2", top.get(1).getProductId());
+		assertEquals("Product ID1", top.get(2).getProductId());
+	}
+
+	@Test
+	public void productsMoveWithTheirLatestStockOnly() {
+
+		AvailabilityIndex index = new AvailabilityIndex();
+
+		index.update(product("Product ID1", TODAY.minusDays(1), 1, 900));
+		index.update(product("Product ID1", TODAY, 5, 50));
+
+		/*
+		 * an older stock arriving late doesn't replace the newer one
+		 * */
+		index.update(product("Product ID1", TODAY, 2, 800));
+
+		assertEquals(1, index.size());
+		assertEquals(0, index.topAvailable(TODAY.minusDays(1).toEpochDay(), TODAY.minusDays(1).toEpochDay(), 3).size());
+
+		List<Product> top = index.topAvailable(TODAY.toEpochDay(), TODAY.toEpochDay(), 3);
+
+		assertEquals(1, top.size());
+		assertEquals(50, top.get(0).getQuantity());
+	}
+
+}
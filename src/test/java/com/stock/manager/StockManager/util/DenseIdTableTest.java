@@ -0,0 +1,52 @@
+package com.stock.manager.StockManager.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DenseIdTableTest {
+
+	@Test
+	public void tableGrowsToFitTheIdsAndKeepsTheValues() {
+
+		DenseIdTable<String> table = new DenseIdTable<>(16);
+
+		for (int id = 0; id < 1000; id += 3) {
+			table.put(id, "Product ID" + id);
+		}
+
+		assertEquals(334, table.size());
+		assertEquals("Product ID999", table.get(999));
+		assertNull(table.get(1));
+		assertNull(table.get(5000));
+		assertNull(table.get(-1));
+	}
+
+	@Test
+	public void valuesAreCreatedOnceAndRemoved() {
+
+		DenseIdTable<List<Integer>> table = new DenseIdTable<>(16);
+
+		List<Integer> created = table.computeIfAbsent(40, ArrayList::new);
+		assertSame(created, table.computeIfAbsent(40, ArrayList::new));
+
+		table.put(2, new ArrayList<>());
+
+		List<List<Integer>> values = new ArrayList<>(table.values());
+		assertEquals(2, values.size());
+		assertSame(created, values.get(1));
+
+		assertSame(created, table.remove(40));
+		assertNull(table.remove(40));
+		assertEquals(1, table.size());
+
+		table.clear();
+		assertEquals(Arrays.asList(), new ArrayList<>(table.values()));
+	}
+}
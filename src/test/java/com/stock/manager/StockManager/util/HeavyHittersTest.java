@@ -0,0 +1,109 @@
+package com.stock.manager.StockManager.util;
+
+import com.stock.manager.StockManager.loadtest.ZipfianDistribution;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HeavyHittersTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+	private static long millis(LocalDate date, int hour) {
+		return date.atStartOfDay(ZoneOffset.UTC).plusHours(hour).toInstant().toEpochMilli();
+	}
+
+	@Test
+	public void salesAreExactWhileTheSummaryIsNotFull() {
+
+		HeavyHitters heavyHitters = new HeavyHitters(16, 1024, 4);
+
+		heavyHitters.record("Product ID1", millis(TODAY, 6), 10);
+		heavyHitters.record("product id1", millis(TODAY, 7), 5);
+		heavyHitters.record("Product ID2", millis(TODAY.minusDays(1), 7), 30);
+		heavyHitters.record("Product ID3", millis(TODAY, 8), 7);
+
+		Map<String, Long> today = heavyHitters.topSelling(2, TODAY.toEpochDay(), TODAY.toEpochDay());
+
+		assertEquals(Arrays.asList("Product ID1", "Product ID3"), Arrays.asList(today.keySet().toArray()));
+		assertEquals(Long.valueOf(15), today.get("Product ID1"));
+
+		Map<String, Long> twoDays = heavyHitters.topSelling(3, TODAY.minusDays(1).toEpochDay(), TODAY.toEpochDay());
+
+		assertEquals("Product ID2", twoDays.keySet().iterator().next());
+		assertEquals(3, twoDays.size());
+	}
+
+	@Test
+	public void topSellersOfALargeCatalogAreFoundWithinTheErrorBound() {
+
+		HeavyHitters heavyHitters = new HeavyHitters(64, 512, 4);
+
+		int products = 20_000;
+		long[] exact = new long[products];
+
+		ZipfianDistribution zipf = new ZipfianDistribution(products, 1.1);
+		SplittableRandom random = new SplittableRandom(42);
+
+		for (int i = 0; i < 200_000; i++) {
+
+			int rank = zipf.sample(random);
+			LocalDate day = TODAY.minusDays(i % 3);
+
+			exact[rank] += 2;
+			heavyHitters.record("Product ID" + rank, millis(day, i % 24), 2);
+		}
+
+		long bound = heavyHitters.errorBound(TODAY.minusDays(2).toEpochDay(), TODAY.toEpochDay());
+
+		Map<String, Long> top = heavyHitters.topSelling(5, TODAY.minusDays(2).toEpochDay(), TODAY.toEpochDay());
+
+		assertEquals(Arrays.asList("Product ID0", "Product ID1", "Product ID2", "Product ID3", "Product ID4"),
+				Arrays.asList(top.keySet().toArray()));
+
+		for (int rank = 0; rank < 5; rank++) {
+
+			long estimate = top.get("Product ID" + rank);
+
+			assertTrue(estimate >= exact[rank]);
+			assertTrue(estimate <= exact[rank] + bound);
+		}
+	}
+
+	@Test
+	public void salesOlderThanTheWindowsAreDropped() {
+
+		HeavyHitters heavyHitters = new HeavyHitters(16, 64, 2);
+
+		heavyHitters.record("Product ID1", millis(TODAY, 6), 10);
+		heavyHitters.record("Product ID1", millis(TODAY.minusDays(SalesLedger.DAYS), 6), 99);
+
+		assertEquals(Long.valueOf(10), heavyHitters.topSelling(1, TODAY.minusDays(SalesLedger.DAYS).toEpochDay(), TODAY.toEpochDay()).get("Product ID1"));
+	}
+
+	@Test
+	public void salesAfterTomorrowDoNotResetTheWindowOfAKeptDay() {
+
+		HeavyHitters heavyHitters = new HeavyHitters(16, 64, 2);
+		LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+		heavyHitters.record("Product ID1", millis(today, 6), 10);
+
+		/*
+		 * the far future day falls into the window of today
+		 * */
+		heavyHitters.record("Product ID2", millis(today.plusDays(SalesLedger.DAYS), 6), 99);
+		heavyHitters.record("Product ID3", millis(today.plusDays(1), 6), 5);
+
+		assertEquals(Long.valueOf(10), heavyHitters.topSelling(1, today.toEpochDay(), today.toEpochDay()).get("Product ID1"));
+		assertTrue(heavyHitters.topSelling(1, today.plusDays(SalesLedger.DAYS).toEpochDay(), today.plusDays(SalesLedger.DAYS).toEpochDay()).isEmpty());
+		assertEquals(Long.valueOf(5), heavyHitters.topSelling(1, today.plusDays(1).toEpochDay(), today.plusDays(1).toEpochDay()).get("Product ID3"));
+	}
+}
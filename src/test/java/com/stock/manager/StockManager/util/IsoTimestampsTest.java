@@ -0,0 +1,40 @@
+package com.stock.manager.StockManager.util;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class IsoTimestampsTest {
+
+	@Test
+	public void timestampsMatchTheIsoFormatter() {
+
+		Random random = new Random(42);
+
+		long[] edges = {0, -1, 951_782_400_000L, 4_107_542_399_999L, -62_167_219_200_000L, 253_402_300_799_999L};
+
+		for (long millis : edges) {
+			assertEquals(IsoTimestamps.FORMATTER.format(Instant.ofEpochMilli(millis)), IsoTimestamps.toString(millis));
+		}
+
+		for (int i = 0; i < 100_000; i++) {
+
+			long millis = (long) ((random.nextDouble() * 2 - 1) * 62_000_000_000_000L);
+			assertEquals(IsoTimestamps.FORMATTER.format(Instant.ofEpochMilli(millis)), IsoTimestamps.toString(millis));
+		}
+
+		assertEquals("2026-10-18T06:05:00.000Z", IsoTimestamps.toString(Instant.parse("2026-10-18T06:05:00Z").toEpochMilli()));
+	}
+
+	@Test
+	public void yearsBeyondFourDigitsAreNotWrittenIntoTheBuffer() {
+
+		long millis = Instant.parse("+10000-01-01T00:00:00Z").toEpochMilli();
+
+		assertEquals(-1, IsoTimestamps.format(millis, new char[IsoTimestamps.LENGTH], 0));
+		assertEquals(IsoTimestamps.FORMATTER.format(Instant.ofEpochMilli(millis)), IsoTimestamps.toString(millis));
+	}
+}
@@ -0,0 +1,75 @@
+package com.stock.manager.StockManager.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class MemoryCacheTest {
+
+	@Test
+	public void lruEvictsTheLeastRecentlyUsedItemWhenFull() {
+
+		MemoryCache<String, Integer> cache = new MemoryCache<>(0, 0, 2);
+
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.get("a");
+		cache.put("c", 3);
+
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void concurrentCacheNeverHoldsMoreThanTheMaxItems() {
+
+		ConcurrentMemoryCache<String, Integer> cache = new ConcurrentMemoryCache<>(0, 0, 100, EvictionPolicy.LRU, 16);
+
+		for (int i = 0; i < 10_000; i++) {
+			cache.put("key" + i, i);
+		}
+
+		assertEquals(100, cache.size());
+	}
+
+	@Test
+	public void tinyLfuKeepsTheHotItemsResident() {
+
+		MemoryCache<String, Integer> cache = new MemoryCache<>(0, 0, 100, EvictionPolicy.W_TINY_LFU);
+
+		for (int i = 0; i < 99; i++) {
+			cache.put("hot" + i, i);
+		}
+
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 99; i++) {
+				cache.get("hot" + i);
+			}
+		}
+
+		/*
+		 * a scan of the one-off items must not flush the hot ones
+		 * */
+		for (int i = 0; i < 1000; i++) {
+			cache.put("cold" + i, i);
+		}
+
+		int resident = 0;
+
+		for (int i = 0; i < 99; i++) {
+			if (cache.get("hot" + i) != null) {
+				resident++;
+			}
+		}
+
+		assertEquals(100, cache.size());
+		assertEquals(99, resident);
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.stock.manager.StockManager.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Compares the throughput of the {@link MemoryCache} with the {@link ConcurrentMemoryCache}
+ * from 1 to 32 threads. Every thread runs a mix of 80% reads and 20% writes on random
+ * products for a fixed duration, run it with
+ * <p>
+ * $ mvn test-compile exec:java -Dexec.mainClass=com.stock.manager.StockManager.util.MemoryCacheThroughput -Dexec.classpathScope=test
+ */
+public class MemoryCacheThroughput {
+
+	private static final int MAX_ITEMS = 10_000;
+	private static final int KEYS = 20_000;
+	private static final long DURATION_MILLIS = 2_000;
+
+	public static void main(String[] args) throws InterruptedException {
+
+		System.out.printf("%8s %20s %20s%n", "threads", "MemoryCache ops/s", "Concurrent ops/s");
+
+		for (int threads = 1; threads <= 32; threads <<= 1) {
+
+			MemoryCache<String, Integer> cache = new MemoryCache<>(0, 0, MAX_ITEMS);
+			ConcurrentMemoryCache<String, Integer> concurrent = new ConcurrentMemoryCache<>(0, 0, MAX_ITEMS);
+
+			long single = run(threads, cache::put, cache::get);
+			long striped = run(threads, concurrent::put, concurrent::get);
+
+			System.out.printf("%8d %20d %20d%n", threads, single, striped);
+		}
+	}
+
+	private static long run(int threads, BiConsumer<String, Integer> put, Function<String, Integer> get)
+			throws InterruptedException {
+
+		String[] keys = new String[KEYS];
+
+		for (int i = 0; i < KEYS; i++) {
+			keys[i] = "Product ID" + i;
+			put.accept(keys[i], i);
+		}
+
+		LongAdder operations = new LongAdder();
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+
+		for (int t = 0; t < threads; t++) {
+
+			new Thread(() -> {
+
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long count = 0;
+
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+
+				while (System.currentTimeMillis() < deadline) {
+
+					for (int i = 0; i < 100; i++) {
+
+						String key = keys[random.nextInt(KEYS)];
+
+						if (random.nextInt(5) == 0) {
+							put.accept(key, i);
+						} else {
+							get.apply(key);
+						}
+					}
+
+					count += 100;
+				}
+
+				operations.add(count);
+				done.countDown();
+			}).start();
+		}
+
+		start.countDown();
+		done.await();
+
+		return operations.sum() * 1000 / DURATION_MILLIS;
+	}
+}
@@ -0,0 +1,78 @@
+package com.stock.manager.StockManager.util;
+
+import com.stock.manager.StockManager.models.Product;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapStockStoreTest {
+
+	private static Product product(String productId, String stockId, long millis, int quantity) {
+		return new Product(productId, null, stockId, new Timestamp(millis), quantity);
+	}
+
+	@Test
+	public void productsAreMatchedCaseInsensitivelyAndOnlyNewerStocksAreStored() {
+
+		OffHeapStockStore store = new OffHeapStockStore(16);
+
+		assertTrue(store.putIfNewer(product("Product ID1", "Stock ID", 2000L, 500)));
+		assertFalse(store.putIfNewer(product("product id1", "Stock ID", 1000L, 400)));
+		assertTrue(store.putIfNewer(product("PRODUCT ID1", "Stock ID2", 2000L, 300)));
+
+		Product stored = store.get("product ID1").get();
+
+		/*
+		 * the product keeps the ID it was first stored with
+		 * */
+		assertEquals("Product ID1", stored.getProductId());
+		assertEquals("Stock ID2", stored.getId());
+		assertEquals(2000L, stored.getTimestamp().getTime());
+		assertEquals(300, stored.getQuantity());
+
+		assertEquals(2000L, store.timestampOf("Product id1"));
+		assertEquals(Long.MIN_VALUE, store.timestampOf("Product ID2"));
+		assertFalse(store.get("Product ID2").isPresent());
+	}
+
+	@Test
+	public void theIndexGrowsAndKeepsAllTheProducts() {
+
+		OffHeapStockStore store = new OffHeapStockStore(16);
+
+		/*
+		 * the records and the product IDs span more than one chunk, some of the IDs need
+		 * two bytes per char
+		 * */
+		for (int i = 0; i < 100_000; i++) {
+			store.putIfNewer(product((i % 10 == 0 ? "Produkt ŁД" : "Product ID") + i, i % 2 == 0 ? null : "Stock ID", i, i));
+		}
+
+		assertEquals(100_000, store.size());
+		assertTrue(store.getCapacity() >= 100_000 / 0.7);
+		assertTrue(store.getLoadFactor() <= 0.7);
+		assertTrue(store.getMemoryBytes() >= 100_000L * OffHeapStockStore.RECORD_BYTES);
+
+		for (int i = 0; i < 100_000; i++) {
+
+			String productId = (i % 10 == 0 ? "produkt łд" : "product id") + i;
+			Product stored = store.get(productId).get();
+
+			assertEquals(i, stored.getQuantity());
+			assertEquals(i, stored.getTimestamp().getTime());
+		}
+
+		assertNull(store.get("PRODUCT ID2").get().getId());
+		assertEquals("Produkt ŁД10", store.get("produkt łд10").get().getProductId());
+
+		store.clear();
+
+		assertEquals(0, store.size());
+		assertFalse(store.get("Product ID1").isPresent());
+	}
+}
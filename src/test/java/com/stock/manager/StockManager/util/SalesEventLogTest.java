@@ -0,0 +1,165 @@
+package com.stock.manager.StockManager.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SalesEventLogTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static List<String> replay(SalesEventLog log, long from) throws IOException {
+
+		List<String> records = new ArrayList<>();
+		log.replay(from, (productId, timestampMillis, delta) -> records.add(productId + "@" + timestampMillis + "=" + delta));
+
+		return records;
+	}
+
+	@Test
+	public void salesAreReplayedInOrderAfterTheLogIsReopened() throws IOException {
+
+		Path directory = folder.getRoot().toPath();
+
+		try (SalesEventLog log = new SalesEventLog(directory, 4)) {
+
+			long position = 0;
+
+			for (int i = 1; i <= 10; i++) {
+				position = log.append("Product ID" + (i % 3), 1000L * i, i);
+			}
+
+			log.sync(position);
+
+			assertEquals(10, position);
+			assertEquals(3, log.getSegmentCount());
+			assertEquals(3, log.getDictionary().size());
+		}
+
+		try (SalesEventLog log = new SalesEventLog(directory, 4)) {
+
+			assertEquals(10, log.getPosition());
+
+			List<String> records = replay(log, 0);
+
+			assertEquals(10, records.size());
+			assertEquals("Product ID1@1000=1", records.get(0));
+			assertEquals("Product ID1@10000=10", records.get(9));
+
+			assertEquals(11, log.append("Product ID4", 11_000L, 11));
+
+			List<String> tail = replay(log, 9);
+
+			assertEquals(2, tail.size());
+			assertEquals("Product ID4@11000=11", tail.get(1));
+		}
+
+		try (SalesEventLog log = new SalesEventLog(directory, 4)) {
+			assertEquals(11, log.getPosition());
+			assertEquals(4, log.getDictionary().size());
+		}
+	}
+
+	@Test
+	public void salesOfNoItemsAreNotLogged() throws IOException {
+
+		try (SalesEventLog log = new SalesEventLog(folder.getRoot().toPath(), 4)) {
+
+			log.append("Product ID", 1000L, 5);
+
+			assertEquals(1, log.append("Product ID", 2000L, 0));
+			assertEquals(1, replay(log, 0).size());
+		}
+	}
+
+	@Test
+	public void segmentsBeforeThePositionAreDeletedAndTheRestIsReplayed() throws IOException {
+
+		Path directory = folder.getRoot().toPath();
+
+		try (SalesEventLog log = new SalesEventLog(directory, 4)) {
+
+			for (int i = 1; i <= 10; i++) {
+				log.append("Product ID", 1000L * i, i);
+			}
+
+			assertEquals(1, log.deleteBefore(6));
+			assertEquals(4, log.getStartPosition());
+			assertEquals(2, log.getSegmentCount());
+
+			/*
+			 * the current segment is kept even if all of its records are before the position
+			 * */
+			assertEquals(1, log.deleteBefore(100));
+			assertEquals(8, log.getStartPosition());
+		}
+
+		try (SalesEventLog log = new SalesEventLog(directory, 4)) {
+
+			assertEquals(10, log.getPosition());
+			assertEquals(8, log.getStartPosition());
+
+			List<String> records = replay(log, 0);
+
+			assertEquals(2, records.size());
+			assertEquals("Product ID@9000=9", records.get(0));
+		}
+	}
+
+	@Test
+	public void positionOfSkipsTheSegmentsOfOlderSales() throws IOException {
+
+		Path directory = folder.getRoot().toPath();
+
+		try (SalesEventLog log = new SalesEventLog(directory, 4)) {
+
+			for (int i = 1; i <= 10; i++) {
+				log.append("Product ID", 1000L * i, i);
+			}
+
+			assertEquals(0, log.positionOf(0));
+			assertEquals(4, log.positionOf(5000));
+			assertEquals(8, log.positionOf(9500));
+			assertEquals(10, log.positionOf(20_000));
+		}
+
+		/*
+		 * the latest timestamps of the full segments are read back from the index
+		 * */
+		try (SalesEventLog log = new SalesEventLog(directory, 4)) {
+
+			assertEquals(4, log.positionOf(5000));
+			assertEquals(8, log.positionOf(9500));
+		}
+	}
+
+	@Test
+	public void productIdsAreMatchedCaseInsensitively() throws IOException {
+
+		Path directory = folder.getRoot().toPath();
+
+		try (SalesEventLog log = new SalesEventLog(directory, 4)) {
+
+			log.append("Product ID", 1000L, 1);
+			log.append("PRODUCT id", 2000L, 2);
+
+			assertEquals(1, log.getDictionary().size());
+		}
+
+		try (SalesEventLog log = new SalesEventLog(directory, 4)) {
+
+			List<String> records = replay(log, 0);
+
+			assertEquals(2, records.size());
+			assertEquals("Product ID@2000=2", records.get(1));
+		}
+	}
+}
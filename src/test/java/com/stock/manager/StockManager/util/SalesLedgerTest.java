@@ -0,0 +1,79 @@
+package com.stock.manager.StockManager.util;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertEquals;
+
+public class SalesLedgerTest {
+
+	private static long millis(LocalDate date, int hour) {
+		return date.atStartOfDay(ZoneOffset.UTC).plusHours(hour).toInstant().toEpochMilli();
+	}
+
+	@Test
+	public void salesAreKeyedByTheNormalizedProductId() {
+
+		SalesLedger sales = new SalesLedger(16);
+
+		sales.record("Product ID1", 1000L, 100);
+		sales.record("product id1", 2000L, 50);
+
+		assertEquals(1, sales.size());
+		assertEquals(150L, sales.get("PRODUCT ID1"));
+		assertEquals(150L, sales.remove("Product ID1"));
+		assertEquals(0, sales.size());
+	}
+
+	@Test
+	public void salesAreSummedFromTheBucketsOfTheRange() {
+
+		SalesLedger sales = new SalesLedger(16);
+
+		LocalDate today = LocalDate.of(2026, 10, 18);
+		LocalDate lastMonth = LocalDate.of(2026, 8, 1);
+
+		sales.record("Product ID1", millis(lastMonth, 6), 10);
+		sales.record("Product ID1", millis(lastMonth.plusDays(29), 23), 20);
+		sales.record("Product ID1", millis(today, 6), 5);
+		sales.record("Product ID1", millis(today, 7), 1);
+
+		SalesLedger.ProductSales product = sales.products().iterator().next();
+
+		assertEquals(6L, sales.get("Product ID1", today.toEpochDay(), today.toEpochDay()));
+		assertEquals(30L, product.itemsSold(lastMonth.toEpochDay(), lastMonth.plusDays(29).toEpochDay()));
+
+		/*
+		 * a newer day reuses the slot of the day which is out of the range
+		 * */
+		LocalDate later = lastMonth.plusDays(SalesLedger.DAYS);
+		sales.record("Product ID1", millis(later, 0), 3);
+
+		assertEquals(0L, product.itemsSold(lastMonth.toEpochDay(), lastMonth.toEpochDay()));
+		assertEquals(3L, product.itemsSold(later.toEpochDay(), later.toEpochDay()));
+		assertEquals(39L, product.getItemsSold());
+	}
+
+
+	@Test
+	public void salesAfterTomorrowDoNotTakeOverTheBucketOfToday() {
+
+		SalesLedger sales = new SalesLedger(16);
+		LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+		sales.record("Product ID1", millis(today, 6), 10);
+
+		/*
+		 * the far future day falls into the slot of today
+		 * */
+		sales.record("Product ID1", millis(today.plusDays(SalesLedger.DAYS), 6), 99);
+		sales.record("Product ID1", millis(today, 7), 5);
+		sales.record("Product ID1", millis(today.plusDays(1), 6), 3);
+
+		assertEquals(15L, sales.get("Product ID1", today.toEpochDay(), today.toEpochDay()));
+		assertEquals(3L, sales.get("Product ID1", today.plusDays(1).toEpochDay(), today.plusDays(1).toEpochDay()));
+		assertEquals(18L, sales.get("Product ID1"));
+	}
+}
@@ -0,0 +1,56 @@
+package com.stock.manager.StockManager.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SortingHelperTest {
+
+	private static void assertSelectsTheLargestValues(int size, int n) {
+
+		Random random = new Random(size);
+		long[] values = new long[size];
+
+		for (int i = 0; i < size; i++) {
+			values[i] = random.nextInt(1_000_000);
+		}
+
+		long[] selected = new long[n];
+		int[] top = SortingHelper.selectTopN(size, i -> values[i], n, selected);
+
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+
+		long[] expected = new long[Math.min(n, size)];
+
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = sorted[size - 1 - i];
+		}
+
+		assertEquals(expected.length, top.length);
+		assertArrayEquals(expected, Arrays.copyOf(selected, top.length));
+
+		for (int i = 0; i < top.length; i++) {
+			assertEquals(selected[i], values[top[i]]);
+		}
+	}
+
+	@Test
+	public void selectsTheTopNSequentially() {
+
+		assertSelectsTheLargestValues(1_000, 3);
+		assertSelectsTheLargestValues(2, 3);
+	}
+
+	@Test
+	public void selectsTheTopNOverTheForkJoinPool() {
+
+		assertSelectsTheLargestValues(SortingHelper.PARALLEL_THRESHOLD * 4 + 17, 3);
+		assertSelectsTheLargestValues(SortingHelper.PARALLEL_THRESHOLD * 2, 100);
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.stock.manager.StockManager.util;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StatisticsCacheTest {
+
+	private final long today = LocalDate.now(ZoneOffset.UTC).toEpochDay();
+
+	private final long lastMonthStart = LocalDate.now(ZoneOffset.UTC).minusMonths(1).withDayOfMonth(1).toEpochDay();
+	private final long lastMonthEnd = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1).toEpochDay() - 1;
+
+	private StatisticsCache.Result compute(StatisticsCache cache, String range, long from, long to) {
+
+		StatisticsCache.Result result = cache.get(range, from, to);
+
+		if (result == null) {
+			result = cache.put(range, from, to, cache.version(to), new byte[0]);
+		}
+
+		return result;
+	}
+
+	@Test
+	public void openPeriodsAreComputedAgainAfterEveryWrite() {
+
+		StatisticsCache cache = new StatisticsCache();
+
+		StatisticsCache.Result first = compute(cache, "today", today, today);
+
+		assertNotNull(cache.get("today", today, today));
+
+		cache.written(today, AvailabilityIndex.NO_DAY);
+
+		assertNull(cache.get("today", today, today));
+
+		StatisticsCache.Result second = compute(cache, "today", today, today);
+
+		assertNotEquals(first.getEtag(), second.getEtag());
+		assertEquals(second, cache.get("today", today, today));
+
+		/*
+		 * the result of the next day is another period
+		 * */
+		assertNull(cache.get("today", today + 1, today + 1));
+	}
+
+	@Test
+	public void closedPeriodsOnlyChangeWithTheWritesOfThePast() {
+
+		StatisticsCache cache = new StatisticsCache();
+
+		StatisticsCache.Result result = compute(cache, "lastMonth", lastMonthStart, lastMonthEnd);
+
+		cache.written(today, AvailabilityIndex.NO_DAY);
+		cache.written(today, today);
+
+		assertEquals(result, cache.get("lastMonth", lastMonthStart, lastMonthEnd));
+
+		/*
+		 * the latest stock of a product moves from the last month to today
+		 * */
+		cache.written(today, lastMonthEnd);
+
+		assertNull(cache.get("lastMonth", lastMonthStart, lastMonthEnd));
+		assertNotEquals(result.getEtag(), compute(cache, "lastMonth", lastMonthStart, lastMonthEnd).getEtag());
+
+		cache.written(lastMonthStart, AvailabilityIndex.NO_DAY);
+
+		assertNull(cache.get("lastMonth", lastMonthStart, lastMonthEnd));
+	}
+
+	@Test
+	public void resultsComputedDuringAWriteAreOutdated() {
+
+		StatisticsCache cache = new StatisticsCache();
+
+		long version = cache.version(today);
+
+		cache.written(today, AvailabilityIndex.NO_DAY);
+		cache.put("today", today, today, version, new byte[0]);
+
+		assertNull(cache.get("today", today, today));
+	}
+
+	@Test
+	public void etagsAreMatchedInTheListOfTheClient() {
+
+		assertTrue(StatisticsCache.matches("\"a\", \"b\"", "\"b\""));
+		assertTrue(StatisticsCache.matches("*", "\"b\""));
+
+		assertFalse(StatisticsCache.matches("\"a\"", "\"b\""));
+		assertFalse(StatisticsCache.matches(null, "\"b\""));
+	}
+}
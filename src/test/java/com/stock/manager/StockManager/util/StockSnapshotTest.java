@@ -0,0 +1,79 @@
+package com.stock.manager.StockManager.util;
+
+import com.stock.manager.StockManager.models.Product;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class StockSnapshotTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+	private static long millis(LocalDate date, int hour) {
+		return date.atStartOfDay(ZoneOffset.UTC).plusHours(hour).toInstant().toEpochMilli();
+	}
+
+	@Test
+	public void productsAndSalesAreRestoredFromTheSnapshot() throws IOException {
+
+		SalesLedger sales = new SalesLedger(16);
+
+		sales.record("Product ID1", millis(TODAY.minusDays(30), 6), 10);
+		sales.record("Product ID1", millis(TODAY, 6), 5);
+		sales.record("Product ID2", millis(TODAY, 7), 7);
+
+		List<Product> products = Arrays.asList(
+				new Product("Product ID1", null, "Stock ID", new Timestamp(millis(TODAY, 6)), 95),
+				new Product("Product ID2", null, "Stock ID", new Timestamp(millis(TODAY, 7)), 3));
+
+		Path file = folder.getRoot().toPath().resolve("stock.snapshot");
+
+		StockSnapshot snapshot = StockSnapshot.capture(42, products, sales);
+		snapshot.writeTo(file);
+
+		assertEquals(2, snapshot.getProductCount());
+		assertEquals(2, snapshot.getSalesCount());
+
+		SalesLedger restored = new SalesLedger(16);
+		List<Product> loaded = new ArrayList<>();
+
+		assertEquals(42, StockSnapshot.load(file, loaded::add, restored));
+
+		assertEquals(products, loaded);
+
+		assertEquals(15L, restored.get("Product ID1"));
+		assertEquals(5L, restored.get("Product ID1", TODAY.toEpochDay(), TODAY.toEpochDay()));
+		assertEquals(10L, restored.get("product id1", TODAY.minusDays(30).toEpochDay(), TODAY.minusDays(30).toEpochDay()));
+
+		SalesLedger.ProductSales second = null;
+
+		for (SalesLedger.ProductSales s : restored.products()) {
+			if (s.getProductId().equals("Product ID2")) {
+				second = s;
+			}
+		}
+
+		assertEquals(7L, second.itemsSold(TODAY.toEpochDay(), TODAY.toEpochDay()));
+	}
+
+	@Test
+	public void missingSnapshotIsReported() throws IOException {
+
+		Path file = folder.getRoot().toPath().resolve("stock.snapshot");
+		assertEquals(-1, StockSnapshot.load(file, product -> { }, new SalesLedger(16)));
+	}
+}
@@ -0,0 +1,43 @@
+package com.stock.manager.StockManager.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StringDictionaryTest {
+
+	@Test
+	public void idsAreAssignedInTheOrderTheStringsAreFirstSeen() {
+
+		StringDictionary dictionary = new StringDictionary();
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, dictionary.idOf("Product ID" + i));
+		}
+
+		assertEquals(42, dictionary.idOf("Product ID42"));
+		assertEquals(100, dictionary.size());
+
+		assertEquals("Product ID99", dictionary.valueOf(99));
+		assertEquals(-1, dictionary.find("Product ID100"));
+	}
+
+	@Test
+	public void caseInsensitiveDictionaryKeepsTheFirstSeenString() {
+
+		StringDictionary dictionary = StringDictionary.caseInsensitive();
+
+		assertEquals(0, dictionary.idOf("Product ID1"));
+		assertEquals(0, dictionary.idOf("PRODUCT id1"));
+		assertEquals(0, dictionary.find("product id1"));
+		assertEquals(1, dictionary.idOf("Product ID2"));
+
+		assertEquals("Product ID1", dictionary.valueOf(0));
+		assertEquals(2, dictionary.size());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void unknownIdsAreRejected() {
+		new StringDictionary().valueOf(0);
+	}
+}
@@ -0,0 +1,113 @@
+package com.stock.manager.StockManager.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StripedLockTest {
+
+	@Test
+	public void productIdsAreMatchedCaseInsensitively() {
+
+		StripedLock locks = new StripedLock(50);
+
+		assertEquals(64, locks.getStripeCount());
+		assertEquals(locks.stripeFor("Product ID"), locks.stripeFor("PRODUCT id"));
+	}
+
+	@Test
+	public void updatesOfTheSameProductAreNotInterleaved() throws InterruptedException {
+
+		StripedLock locks = new StripedLock(16);
+		long[] counter = new long[1];
+
+		int threads = 4;
+		int updates = 10_000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+
+		for (int t = 0; t < threads; t++) {
+
+			executor.execute(() -> {
+
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				for (int i = 0; i < updates; i++) {
+
+					int stripe = locks.stripeFor("Product ID");
+					locks.lock(stripe);
+
+					try {
+						counter[0]++;
+					} finally {
+						locks.unlock(stripe);
+					}
+				}
+			});
+		}
+
+		start.countDown();
+		executor.shutdown();
+
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		assertEquals(threads * updates, counter[0]);
+
+		int stripe = locks.stripeFor("Product ID");
+
+		assertEquals(threads * updates, locks.getAcquisitions(stripe));
+		assertTrue(locks.getContentions(stripe) <= locks.getAcquisitions(stripe));
+	}
+
+	@Test
+	public void stripesOfABatchAreLockedInAscendingOrderAndReleased() {
+
+		StripedLock locks = new StripedLock(8);
+
+		int[] stripes = locks.lockAll(Arrays.asList("Product ID1", "Product ID2", "product id1", "Product ID3"));
+
+		int[] sorted = stripes.clone();
+		Arrays.sort(sorted);
+
+		assertArrayEquals(sorted, stripes);
+
+		for (int i = 1; i < stripes.length; i++) {
+			assertTrue(stripes[i - 1] != stripes[i]);
+		}
+
+		locks.unlockAll(stripes);
+
+		for (int stripe : stripes) {
+			assertEquals(1, locks.getAcquisitions(stripe));
+			assertEquals(0, locks.getContentions(stripe));
+		}
+	}
+
+	@Test
+	public void stripesOfDictionaryIdsAreLockedOnce() {
+
+		StripedLock locks = new StripedLock(8);
+
+		int[] stripes = locks.lockAll(new int[]{3, 11, 3, 250});
+
+		for (int i = 1; i < stripes.length; i++) {
+			assertTrue(stripes[i - 1] < stripes[i]);
+		}
+
+		locks.unlockAll(stripes);
+
+		assertEquals(1, locks.getAcquisitions(locks.stripeFor(3)));
+	}
+}
@@ -0,0 +1,80 @@
+package com.stock.manager.StockManager.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimerWheelTest {
+
+	@Test
+	public void nodesExpireOnlyOnceTheTimePassesTheirExpiry() {
+
+		TimerWheel<String> wheel = new TimerWheel<>(0);
+
+		TimerWheel.Node<String> soon = new TimerWheel.Node<>("soon");
+		TimerWheel.Node<String> later = new TimerWheel.Node<>("later");
+		TimerWheel.Node<String> days = new TimerWheel.Node<>("days");
+
+		wheel.schedule(soon, 5_000);
+		wheel.schedule(later, 1_800_000);
+		wheel.schedule(days, 10L * 24 * 3600 * 1000);
+
+		List<TimerWheel.Node<String>> expired = new ArrayList<>();
+
+		wheel.advance(4_000, expired);
+		assertTrue(expired.isEmpty());
+
+		wheel.advance(7_000, expired);
+		assertEquals(1, expired.size());
+		assertEquals("soon", expired.get(0).getKey());
+
+		/*
+		 * the node cascades down from the coarse wheels on the way
+		 * */
+		expired.clear();
+
+		for (long now = 60_000; now < 1_800_000; now += 60_000) {
+			wheel.advance(now, expired);
+		}
+
+		assertTrue(expired.isEmpty());
+
+		wheel.advance(1_803_000, expired);
+		assertEquals(1, expired.size());
+		assertEquals("later", expired.get(0).getKey());
+
+		expired.clear();
+		wheel.advance(11L * 24 * 3600 * 1000, expired);
+		assertEquals(1, expired.size());
+		assertEquals("days", expired.get(0).getKey());
+	}
+
+	@Test
+	public void descheduledAndRescheduledNodesDoNotExpireEarly() {
+
+		TimerWheel<String> wheel = new TimerWheel<>(0);
+
+		TimerWheel.Node<String> removed = new TimerWheel.Node<>("removed");
+		TimerWheel.Node<String> touched = new TimerWheel.Node<>("touched");
+
+		wheel.schedule(removed, 2_000);
+		wheel.schedule(touched, 2_000);
+
+		wheel.deschedule(removed);
+		wheel.schedule(touched, 100_000);
+
+		List<TimerWheel.Node<String>> expired = new ArrayList<>();
+
+		wheel.advance(50_000, expired);
+		assertTrue(expired.isEmpty());
+
+		wheel.advance(102_000, expired);
+		assertEquals(1, expired.size());
+		assertEquals("touched", expired.get(0).getKey());
+	}
+
+}